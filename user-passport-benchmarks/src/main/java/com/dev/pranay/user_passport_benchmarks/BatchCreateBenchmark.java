@@ -0,0 +1,119 @@
+package com.dev.pranay.user_passport_benchmarks;
+
+import com.dev.pranay.user_passport_bidirectional.UserPassportBidirectionalApplication;
+import com.dev.pranay.user_passport_demo.UserPassportDemoApplication;
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Users created per second through the single-create path (one createUser call, and transaction, per user)
+// against createUsers, which commits in chunks and sends the inserts as JDBC batches.
+// Every invocation creates USERS_PER_INVOCATION users with passports, so the score is users/s.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(BatchCreateBenchmark.USERS_PER_INVOCATION)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class BatchCreateBenchmark {
+
+    static final int USERS_PER_INVOCATION = 1000;
+
+    @State(Scope.Benchmark)
+    public static class DemoState {
+        ConfigurableApplicationContext context;
+        UserService userService;
+        long sequence;
+
+        @Setup
+        public void setUp() {
+            context = BenchmarkContexts.start(UserPassportDemoApplication.class, "bench-batch-demo");
+            userService = context.getBean(UserService.class);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+
+        List<UserDto> nextUsers() {
+            List<UserDto> users = new ArrayList<>(USERS_PER_INVOCATION);
+            for (int i = 0; i < USERS_PER_INVOCATION; i++) {
+                long n = sequence++;
+                users.add(new UserDto(null, "user-" + n, "user-" + n + "@example.com",
+                        new PassportDto(null, "P-" + n, "IN")));
+            }
+            return users;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BidirectionalState {
+        ConfigurableApplicationContext context;
+        com.dev.pranay.user_passport_bidirectional.service.UserService userService;
+        long sequence;
+
+        @Setup
+        public void setUp() {
+            context = BenchmarkContexts.start(UserPassportBidirectionalApplication.class, "bench-batch-bidirectional");
+            userService = context.getBean(com.dev.pranay.user_passport_bidirectional.service.UserService.class);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+
+        List<com.dev.pranay.user_passport_bidirectional.dtos.UserDto> nextUsers() {
+            List<com.dev.pranay.user_passport_bidirectional.dtos.UserDto> users = new ArrayList<>(USERS_PER_INVOCATION);
+            for (int i = 0; i < USERS_PER_INVOCATION; i++) {
+                long n = sequence++;
+                com.dev.pranay.user_passport_bidirectional.dtos.PassportDto passportDto =
+                        new com.dev.pranay.user_passport_bidirectional.dtos.PassportDto();
+                passportDto.setPassportNumber("P-" + n);
+                passportDto.setNationality("IN");
+                com.dev.pranay.user_passport_bidirectional.dtos.UserDto userDto =
+                        new com.dev.pranay.user_passport_bidirectional.dtos.UserDto();
+                userDto.setName("user-" + n);
+                userDto.setEmail("user-" + n + "@example.com");
+                userDto.setPassportDto(passportDto);
+                users.add(userDto);
+            }
+            return users;
+        }
+    }
+
+    @Benchmark
+    public int demoSingleCreate(DemoState state) {
+        List<UserDto> users = state.nextUsers();
+        for (UserDto userDto : users) {
+            state.userService.createUser(userDto);
+        }
+        return users.size();
+    }
+
+    @Benchmark
+    public List<UserDto> demoBatchCreate(DemoState state) {
+        return state.userService.createUsers(state.nextUsers());
+    }
+
+    @Benchmark
+    public int bidirectionalSingleCreate(BidirectionalState state) {
+        List<com.dev.pranay.user_passport_bidirectional.dtos.UserDto> users = state.nextUsers();
+        for (com.dev.pranay.user_passport_bidirectional.dtos.UserDto userDto : users) {
+            state.userService.createUser(userDto);
+        }
+        return users.size();
+    }
+
+    @Benchmark
+    public List<com.dev.pranay.user_passport_bidirectional.dtos.UserDto> bidirectionalBatchCreate(BidirectionalState state) {
+        return state.userService.createUsers(state.nextUsers());
+    }
+}
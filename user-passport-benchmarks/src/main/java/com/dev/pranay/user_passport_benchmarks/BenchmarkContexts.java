@@ -0,0 +1,49 @@
+package com.dev.pranay.user_passport_benchmarks;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Boots one of the applications against its own in-memory H2 database, without a web server unless startWeb is used.
+// Both apps ship an application.properties and only one of them wins on this classpath, so everything
+// the benchmarks depend on is passed as command line arguments, which take precedence over either file.
+final class BenchmarkContexts {
+
+    private BenchmarkContexts() {
+    }
+
+    static ConfigurableApplicationContext start(Class<?> application, String database, String... extraArgs) {
+        return run(application, WebApplicationType.NONE, database, extraArgs);
+    }
+
+    // Embedded Tomcat on a random port, read it back from WebServerApplicationContext
+    static ConfigurableApplicationContext startWeb(Class<?> application, String database, String... extraArgs) {
+        String[] webArgs = new String[extraArgs.length + 1];
+        webArgs[0] = "--server.port=0";
+        System.arraycopy(extraArgs, 0, webArgs, 1, extraArgs.length);
+        return run(application, WebApplicationType.SERVLET, database, webArgs);
+    }
+
+    private static ConfigurableApplicationContext run(Class<?> application, WebApplicationType webType,
+                                                      String database, String... extraArgs) {
+        String[] args = {
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--spring.h2.console.enabled=false",
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                "--logging.level.root=WARN"
+        };
+        String[] allArgs = new String[args.length + extraArgs.length];
+        System.arraycopy(args, 0, allArgs, 0, args.length);
+        System.arraycopy(extraArgs, 0, allArgs, args.length, extraArgs.length);
+
+        return new SpringApplicationBuilder(application)
+                .web(webType)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(allArgs);
+    }
+}
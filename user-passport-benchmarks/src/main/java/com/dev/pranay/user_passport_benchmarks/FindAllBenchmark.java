@@ -0,0 +1,81 @@
+package com.dev.pranay.user_passport_benchmarks;
+
+import com.dev.pranay.user_passport_demo.UserPassportDemoApplication;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.models.User;
+import com.dev.pranay.user_passport_demo.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// findAll (eager passport loaded by one extra SELECT per user) against the JOIN FETCH in
+// findAllUsersWithPassports and the DTO projection in findAllUserDtosWithPassports, on a demo database
+// seeded with `rows` users that all have a passport. Run with -prof gc to compare allocation per call.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FindAllBenchmark {
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContexts.start(UserPassportDemoApplication.class, "bench-find-all-" + rows);
+        userRepository = context.getBean(UserRepository.class);
+        seed(context.getBean(JdbcTemplate.class), rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<User> findAll() {
+        return userRepository.findAll();
+    }
+
+    @Benchmark
+    public List<User> findAllUsersWithPassports() {
+        return userRepository.findAllUsersWithPassports();
+    }
+
+    @Benchmark
+    public List<UserDto> findAllUserDtosWithPassports() {
+        return userRepository.findAllUserDtosWithPassports();
+    }
+
+    // Plain JDBC batches, going through JPA here would take longer than the benchmark itself at 1M rows
+    static void seed(JdbcTemplate jdbcTemplate, int rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp expiry = Timestamp.valueOf(LocalDateTime.now().plusYears(10));
+        for (int from = 1; from <= rows; from += SEED_BATCH_SIZE) {
+            int to = Math.min(rows, from + SEED_BATCH_SIZE - 1);
+            List<Object[]> passports = new ArrayList<>(SEED_BATCH_SIZE);
+            List<Object[]> users = new ArrayList<>(SEED_BATCH_SIZE);
+            for (long id = from; id <= to; id++) {
+                passports.add(new Object[]{id, "P-" + id, id % 2 == 0 ? "IN" : "US", now, expiry});
+                users.add(new Object[]{id, "user-" + id, "user-" + id + "@example.com", id, now, now});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO passport (id, passport_number, nationality, issue_date, expiry_date) "
+                    + "VALUES (?, ?, ?, ?, ?)", passports);
+            jdbcTemplate.batchUpdate("INSERT INTO users (id, name, email, passport_id, created_at, modified_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)", users);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.dev.pranay.user_passport_benchmarks;
+
+import com.dev.pranay.user_passport_demo.UserPassportDemoApplication;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.repository.UserRepository;
+import com.dev.pranay.user_passport_demo.service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+// The body of GET /api/user/fetchAll as the controller used to build it (List<UserDto>, then the whole list
+// through Jackson's reflection-based BeanSerializer) against the streamed JSON array with the hand-written
+// UserDtoJsonComponent serializers. The response goes to a counting sink, so only the server side is measured.
+// Run with -prof gc and compare gc.alloc.rate.norm (bytes allocated per response). Allocation is about even, most
+// of it is H2 building the row values either way; what the stream saves is the live list (about 100 bytes per row
+// held until the last byte is written), which this benchmark doesn't show.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class JsonResponseBenchmark {
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    // The list baselines read the projection directly, UserService only streams it now
+    private UserRepository userRepository;
+    // The application's mapper, with the @JsonComponent serializers registered
+    private ObjectMapper objectMapper;
+    // Writes the streamed rows without a flush after each one, as UserController does
+    private ObjectWriter rowWriter;
+    // A plain mapper, what serialized UserDto before
+    private final ObjectMapper reflectiveMapper = new ObjectMapper();
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContexts.start(UserPassportDemoApplication.class, "bench-json-" + rows);
+        userService = context.getBean(UserService.class);
+        userRepository = context.getBean(UserRepository.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        FindAllBenchmark.seed(context.getBean(JdbcTemplate.class), rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long listWithReflection() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        reflectiveMapper.writeValue(out, userRepository.findAllUserDtosWithPassports());
+        return out.count;
+    }
+
+    // Isolates the serializer: still the full list, but written with the hand-written serializers
+    @Benchmark
+    public long listWithJsonComponent() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        objectMapper.writeValue(out, userRepository.findAllUserDtosWithPassports());
+        return out.count;
+    }
+
+    // What UserController.findAllUsersWithPassports does now
+    @Benchmark
+    public long streamWithJsonComponent() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.writeStartArray();
+            userService.streamAllUsersWithPassports(userDto -> write(generator, userDto));
+            generator.writeEndArray();
+        }
+        return out.count;
+    }
+
+    private void write(JsonGenerator generator, UserDto userDto) {
+        try {
+            rowWriter.writeValue(generator, userDto);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Stands in for the servlet response stream: counts the bytes and drops them
+    private static final class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
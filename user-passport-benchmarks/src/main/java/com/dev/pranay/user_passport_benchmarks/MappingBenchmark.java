@@ -0,0 +1,106 @@
+package com.dev.pranay.user_passport_benchmarks;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.mappers.UserMapper;
+import com.dev.pranay.user_passport_demo.mappers.UserMapperImpl;
+import com.dev.pranay.user_passport_demo.models.Passport;
+import com.dev.pranay.user_passport_demo.models.User;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Per-call cost of turning entities into DTOs and back:
+//  - modelMapper*    the demo's original path (AppConfig typeMap + the second passport pass in convertToDto)
+//  - generated*      the demo's MapStruct UserMapper that replaced it
+//  - bidirectional*  the hand-written static UserMapper in user-passport-bidirectional
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private UserMapper userMapper;
+    private User user;
+    private UserDto userDto;
+
+    private com.dev.pranay.user_passport_bidirectional.models.User bidirectionalUser;
+    private com.dev.pranay.user_passport_bidirectional.dtos.UserDto bidirectionalUserDto;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        modelMapper.typeMap(User.class, UserDto.class).addMappings(m ->
+                m.map(User::getPassport, UserDto::setPassportDto)
+        );
+        userMapper = new UserMapperImpl();
+
+        Passport passport = new Passport(7L, "P-1234567", "IN", LocalDateTime.now(), LocalDateTime.now().plusYears(10), 0L);
+        user = new User(42L, "Pranay", "pranay@example.com", passport, LocalDateTime.now(), LocalDateTime.now(), 0L);
+        userDto = new UserDto(null, "Pranay", "pranay@example.com", new PassportDto(null, "P-1234567", "IN"));
+
+        // The bidirectional toEntity prints on every call; it stays in the measured path, but keep it off the console
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        bidirectionalUserDto = toBidirectionalDto();
+        bidirectionalUser = com.dev.pranay.user_passport_bidirectional.mappers.UserMapper.toEntity(bidirectionalUserDto);
+    }
+
+    private com.dev.pranay.user_passport_bidirectional.dtos.UserDto toBidirectionalDto() {
+        com.dev.pranay.user_passport_bidirectional.dtos.PassportDto passportDto =
+                new com.dev.pranay.user_passport_bidirectional.dtos.PassportDto();
+        passportDto.setPassportNumber("P-1234567");
+        passportDto.setNationality("IN");
+        com.dev.pranay.user_passport_bidirectional.dtos.UserDto dto =
+                new com.dev.pranay.user_passport_bidirectional.dtos.UserDto();
+        dto.setName("Pranay");
+        dto.setEmail("pranay@example.com");
+        dto.setPassportDto(passportDto);
+        return dto;
+    }
+
+    @Benchmark
+    public UserDto modelMapperToDto() {
+        UserDto dto = modelMapper.map(user, UserDto.class);
+        if (user.getPassport() != null) {
+            dto.setPassportDto(modelMapper.map(user.getPassport(), PassportDto.class));
+        }
+        return dto;
+    }
+
+    @Benchmark
+    public UserDto generatedToDto() {
+        return userMapper.toDto(user);
+    }
+
+    @Benchmark
+    public com.dev.pranay.user_passport_bidirectional.dtos.UserDto bidirectionalToDto() {
+        return com.dev.pranay.user_passport_bidirectional.mappers.UserMapper.toDto(bidirectionalUser);
+    }
+
+    @Benchmark
+    public User modelMapperToEntity() {
+        User entity = modelMapper.map(userDto, User.class);
+        if (userDto.getPassportDto() != null) {
+            entity.setPassport(modelMapper.map(userDto.getPassportDto(), Passport.class));
+        }
+        return entity;
+    }
+
+    @Benchmark
+    public User generatedToEntity() {
+        return userMapper.toEntity(userDto);
+    }
+
+    @Benchmark
+    public com.dev.pranay.user_passport_bidirectional.models.User bidirectionalToEntity() {
+        return com.dev.pranay.user_passport_bidirectional.mappers.UserMapper.toEntity(bidirectionalUserDto);
+    }
+}
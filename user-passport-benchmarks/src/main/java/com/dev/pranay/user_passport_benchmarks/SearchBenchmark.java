@@ -0,0 +1,83 @@
+package com.dev.pranay.user_passport_benchmarks;
+
+import com.dev.pranay.user_passport_demo.UserPassportDemoApplication;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.repository.UserRepository;
+import com.dev.pranay.user_passport_demo.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// GET /api/user/search through UserService, on demo databases of growing size: the indexed lookups should stay
+// flat as rows grows, where fetchAllAndFilter (what clients did before the endpoint: pull /fetchAll, keep one
+// nationality) grows with the table. Half the passports are IN, one in a thousand NZ; pages are 50 users.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private UserRepository userRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContexts.start(UserPassportDemoApplication.class, "bench-search-" + rows);
+        userService = context.getBean(UserService.class);
+        userRepository = context.getBean(UserRepository.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        FindAllBenchmark.seed(jdbcTemplate, rows);
+        jdbcTemplate.update("UPDATE passport SET nationality = 'NZ' WHERE MOD(id, 1000) = 0");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<UserDto> byEmail() {
+        return userService.searchUsers(null, null, "user-" + rows / 2 + "@example.com", 0L, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<UserDto> byNamePrefix() {
+        return userService.searchUsers(null, "user-" + rows / 2, null, 0L, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<UserDto> byCommonNationality() {
+        return userService.searchUsers("IN", null, null, 0L, PAGE_SIZE);
+    }
+
+    // A page near the end: keyset pagination starts at the id instead of skipping the rows before it
+    @Benchmark
+    public List<UserDto> byCommonNationalityLastPage() {
+        return userService.searchUsers("IN", null, null, (long) rows - 2 * PAGE_SIZE, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<UserDto> byRareNationality() {
+        return userService.searchUsers("NZ", null, null, 0L, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<UserDto> fetchAllAndFilter() {
+        return userRepository.findAllUserDtosWithPassports().stream()
+                .filter(user -> user.getPassportDto().getNationality().equals("NZ"))
+                .limit(PAGE_SIZE)
+                .toList();
+    }
+}
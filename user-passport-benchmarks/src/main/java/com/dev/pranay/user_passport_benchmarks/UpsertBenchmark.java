@@ -0,0 +1,178 @@
+package com.dev.pranay.user_passport_benchmarks;
+
+import com.dev.pranay.user_passport_bidirectional.UserPassportBidirectionalApplication;
+import com.dev.pranay.user_passport_demo.UserPassportDemoApplication;
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.metrics.SqlStatementCounter;
+import com.dev.pranay.user_passport_demo.models.User;
+import com.dev.pranay.user_passport_demo.repository.UserRepository;
+import com.dev.pranay.user_passport_demo.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// createOrUpdateUser(id, dto) on an existing user that keeps its passport: the native upsert both services use now
+// against the read-modify-write JPA code it replaced (findById, mutate, save; plus findByPassportNumber in
+// bidirectional). Every trial also prints the SQL statements per update, counted by the apps' StatementInspector.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpsertBenchmark {
+
+    private static final int USERS = 1000;
+
+    @State(Scope.Benchmark)
+    public static class DemoState {
+
+        ConfigurableApplicationContext context;
+        UserService userService;
+        UserRepository userRepository;
+        List<Long> ids;
+        long calls;
+        long statements;
+
+        @Setup
+        public void setUp() {
+            context = BenchmarkContexts.start(UserPassportDemoApplication.class, "bench-upsert-demo");
+            userService = context.getBean(UserService.class);
+            userRepository = context.getBean(UserRepository.class);
+            List<UserDto> users = new ArrayList<>(USERS);
+            for (int i = 0; i < USERS; i++) {
+                users.add(new UserDto(null, "user-" + i, "user-" + i + "@example.com", new PassportDto(null, "UP-" + i, "IN")));
+            }
+            ids = userService.createUsers(users).stream().map(UserDto::getId).toList();
+        }
+
+        // New values on every call, otherwise Hibernate's dirty check would skip the UPDATEs on the JPA path
+        UserDto nextUpdate() {
+            long call = calls++;
+            int index = (int) (call % USERS);
+            return new UserDto(ids.get(index), "user-" + index + "-" + call, "user-" + index + "@example.com",
+                    new PassportDto(null, "UP-" + index, call % 2 == 0 ? "US" : "IN"));
+        }
+
+        @TearDown
+        public void tearDown() {
+            System.out.printf("%n  %.2f SQL statements per update%n", statements / (double) calls);
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BidirectionalState {
+
+        ConfigurableApplicationContext context;
+        com.dev.pranay.user_passport_bidirectional.service.UserService userService;
+        com.dev.pranay.user_passport_bidirectional.repository.UserRepository userRepository;
+        com.dev.pranay.user_passport_bidirectional.repository.PassportRepository passportRepository;
+        List<Long> ids = new ArrayList<>(USERS);
+        List<String> passportNumbers = new ArrayList<>(USERS);
+        long calls;
+        long statements;
+
+        @Setup
+        public void setUp() {
+            context = BenchmarkContexts.start(UserPassportBidirectionalApplication.class, "bench-upsert-bidirectional");
+            userService = context.getBean(com.dev.pranay.user_passport_bidirectional.service.UserService.class);
+            userRepository = context.getBean(com.dev.pranay.user_passport_bidirectional.repository.UserRepository.class);
+            passportRepository = context.getBean(com.dev.pranay.user_passport_bidirectional.repository.PassportRepository.class);
+            List<com.dev.pranay.user_passport_bidirectional.dtos.UserDto> users = new ArrayList<>(USERS);
+            for (int i = 0; i < USERS; i++) {
+                users.add(bidirectionalUserDto("user-" + i, "UP-" + i, "IN"));
+            }
+            userService.createUsers(users);
+            for (com.dev.pranay.user_passport_bidirectional.models.User user : userRepository.findAll()) {
+                ids.add(user.getId());
+                passportNumbers.add(user.getPassport().getPassportNumber());
+            }
+        }
+
+        // The user's own passport number, so the passport stays with it and only the nationality changes
+        com.dev.pranay.user_passport_bidirectional.dtos.UserDto nextUpdate(int index, long call) {
+            return bidirectionalUserDto("user-" + index + "-" + call, passportNumbers.get(index), call % 2 == 0 ? "US" : "IN");
+        }
+
+        @TearDown
+        public void tearDown() {
+            System.out.printf("%n  %.2f SQL statements per update%n", statements / (double) calls);
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public UserDto demoUpsert(DemoState state) {
+        UserDto update = state.nextUpdate();
+        long before = SqlStatementCounter.currentCount();
+        UserDto result = state.userService.createOrUpdateUser(update.getId(), update);
+        state.statements += SqlStatementCounter.currentCount() - before;
+        return result;
+    }
+
+    // UserService.createOrUpdateUser(Long, UserDto) as it was before the native upsert
+    @Benchmark
+    public User demoReadModifyWrite(DemoState state) {
+        UserDto update = state.nextUpdate();
+        long before = SqlStatementCounter.currentCount();
+        User user = state.userRepository.findById(update.getId()).orElseThrow();
+        user.setName(update.getName());
+        user.setEmail(update.getEmail());
+        user.getPassport().setPassportNumber(update.getPassportDto().getPassportNumber());
+        user.getPassport().setNationality(update.getPassportDto().getNationality());
+        User result = state.userRepository.save(user);
+        state.statements += SqlStatementCounter.currentCount() - before;
+        return result;
+    }
+
+    @Benchmark
+    public com.dev.pranay.user_passport_bidirectional.dtos.UserDto bidirectionalUpsert(BidirectionalState state) {
+        long call = state.calls++;
+        int index = (int) (call % USERS);
+        com.dev.pranay.user_passport_bidirectional.dtos.UserDto update = state.nextUpdate(index, call);
+        long before = com.dev.pranay.user_passport_bidirectional.metrics.SqlStatementCounter.currentCount();
+        com.dev.pranay.user_passport_bidirectional.dtos.UserDto result =
+                state.userService.createOrUpdateUser(state.ids.get(index), update);
+        state.statements += com.dev.pranay.user_passport_bidirectional.metrics.SqlStatementCounter.currentCount() - before;
+        return result;
+    }
+
+    // UserService.createOrUpdateUser(Long, UserDto) as it was before the native upsert
+    @Benchmark
+    public com.dev.pranay.user_passport_bidirectional.models.User bidirectionalReadModifyWrite(BidirectionalState state) {
+        long call = state.calls++;
+        int index = (int) (call % USERS);
+        com.dev.pranay.user_passport_bidirectional.dtos.UserDto update = state.nextUpdate(index, call);
+        long before = com.dev.pranay.user_passport_bidirectional.metrics.SqlStatementCounter.currentCount();
+        com.dev.pranay.user_passport_bidirectional.models.User user =
+                state.userRepository.findById(state.ids.get(index)).orElseThrow();
+        user.setName(update.getName());
+        user.setEmail(update.getEmail());
+        com.dev.pranay.user_passport_bidirectional.models.Passport passport =
+                state.passportRepository.findByPassportNumber(update.getPassportDto().getPassportNumber());
+        passport.setNationality(update.getPassportDto().getNationality());
+        user.setPassport(passport);
+        passport.setUser(user);
+        com.dev.pranay.user_passport_bidirectional.models.User result = state.userRepository.save(user);
+        state.statements += com.dev.pranay.user_passport_bidirectional.metrics.SqlStatementCounter.currentCount() - before;
+        return result;
+    }
+
+    private static com.dev.pranay.user_passport_bidirectional.dtos.UserDto bidirectionalUserDto(String name, String passportNumber,
+                                                                                                 String nationality) {
+        com.dev.pranay.user_passport_bidirectional.dtos.PassportDto passportDto =
+                new com.dev.pranay.user_passport_bidirectional.dtos.PassportDto();
+        passportDto.setPassportNumber(passportNumber);
+        passportDto.setNationality(nationality);
+        com.dev.pranay.user_passport_bidirectional.dtos.UserDto userDto =
+                new com.dev.pranay.user_passport_bidirectional.dtos.UserDto();
+        userDto.setName(name);
+        userDto.setEmail(name + "@example.com");
+        userDto.setPassportDto(passportDto);
+        return userDto;
+    }
+}
@@ -0,0 +1,102 @@
+package com.dev.pranay.user_passport_benchmarks;
+
+import com.dev.pranay.user_passport_bidirectional.UserPassportBidirectionalApplication;
+import com.dev.pranay.user_passport_demo.UserPassportDemoApplication;
+import com.dev.pranay.user_passport_demo.models.Passport;
+import com.dev.pranay.user_passport_demo.models.User;
+import com.dev.pranay.user_passport_demo.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// UserRepository.save for a new user, with and without a cascaded passport, in both applications.
+// Every invocation inserts a fresh row, so passport numbers come from a counter to respect the unique constraint.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSaveBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class DemoState {
+        ConfigurableApplicationContext context;
+        UserRepository userRepository;
+        long sequence;
+
+        @Setup
+        public void setUp() {
+            context = BenchmarkContexts.start(UserPassportDemoApplication.class, "bench-save-demo");
+            userRepository = context.getBean(UserRepository.class);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BidirectionalState {
+        ConfigurableApplicationContext context;
+        com.dev.pranay.user_passport_bidirectional.repository.UserRepository userRepository;
+        long sequence;
+
+        @Setup
+        public void setUp() {
+            context = BenchmarkContexts.start(UserPassportBidirectionalApplication.class, "bench-save-bidirectional");
+            userRepository = context.getBean(com.dev.pranay.user_passport_bidirectional.repository.UserRepository.class);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public User demoSaveWithoutPassport(DemoState state) {
+        long n = state.sequence++;
+        User user = new User();
+        user.setName("user-" + n);
+        user.setEmail("user-" + n + "@example.com");
+        return state.userRepository.save(user);
+    }
+
+    @Benchmark
+    public User demoSaveWithPassport(DemoState state) {
+        long n = state.sequence++;
+        User user = new User();
+        user.setName("user-" + n);
+        user.setEmail("user-" + n + "@example.com");
+        Passport passport = new Passport();
+        passport.setPassportNumber("P-" + n);
+        passport.setNationality("IN");
+        user.setPassport(passport);
+        return state.userRepository.save(user);
+    }
+
+    @Benchmark
+    public com.dev.pranay.user_passport_bidirectional.models.User bidirectionalSaveWithoutPassport(BidirectionalState state) {
+        long n = state.sequence++;
+        com.dev.pranay.user_passport_bidirectional.models.User user = new com.dev.pranay.user_passport_bidirectional.models.User();
+        user.setName("user-" + n);
+        user.setEmail("user-" + n + "@example.com");
+        return state.userRepository.save(user);
+    }
+
+    @Benchmark
+    public com.dev.pranay.user_passport_bidirectional.models.User bidirectionalSaveWithPassport(BidirectionalState state) {
+        long n = state.sequence++;
+        com.dev.pranay.user_passport_bidirectional.models.User user = new com.dev.pranay.user_passport_bidirectional.models.User();
+        user.setName("user-" + n);
+        user.setEmail("user-" + n + "@example.com");
+        com.dev.pranay.user_passport_bidirectional.models.Passport passport = new com.dev.pranay.user_passport_bidirectional.models.Passport();
+        passport.setPassportNumber("P-" + n);
+        passport.setNationality("IN");
+        passport.setUser(user);
+        user.setPassport(passport);
+        return state.userRepository.save(user);
+    }
+}
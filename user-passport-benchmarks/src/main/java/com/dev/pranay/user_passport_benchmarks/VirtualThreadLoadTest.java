@@ -0,0 +1,171 @@
+package com.dev.pranay.user_passport_benchmarks;
+
+import com.dev.pranay.user_passport_demo.UserPassportDemoApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ Closed-loop HTTP load against the demo app, once on Tomcat's platform thread pool and once with the
+ "virtual" profile, printing throughput and latency percentiles for both. Not a JMH benchmark: it measures
+ the whole request path (Tomcat, MVC, Hikari, Hibernate, H2) under concurrency, which JMH can't drive.
+
+ Run from the repository root after mvn install:
+   mvn -pl user-passport-benchmarks exec:java -Dexec.mainClass=com.dev.pranay.user_passport_benchmarks.VirtualThreadLoadTest
+ Knobs (system properties): users, concurrency, poolSize, warmupSeconds, durationSeconds.
+ Add -Djdk.tracePinnedThreads=short to MAVEN_OPTS to have the JVM report any carrier pinning in virtual mode.
+
+ Client and server share the JVM, so absolute numbers are pessimistic; compare the two modes, not the values.
+*/
+public class VirtualThreadLoadTest {
+
+    private static final int USERS = Integer.getInteger("users", 10_000);
+    private static final int CONCURRENCY = Integer.getInteger("concurrency", 400);
+    // Both modes get the same Hikari pool (the virtual profile's size by default), so only the threading differs
+    private static final int POOL_SIZE = Integer.getInteger("poolSize", 32);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("warmupSeconds", 10));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("durationSeconds", 30));
+
+    // Mix: 90% join-fetch reads (each one hits the database), 10% updates
+    private static final int WRITE_PERCENT = 10;
+
+    public static void main(String[] args) throws Exception {
+        Result platform = run("platform");
+        Result virtual = run("virtual");
+
+        System.out.printf("%nusers=%d concurrency=%d pool=%d duration=%ss%n", USERS, CONCURRENCY, POOL_SIZE, DURATION.toSeconds());
+        System.out.printf("%-9s %10s %8s %9s %9s %9s %9s%n", "mode", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        platform.print();
+        virtual.print();
+    }
+
+    private static Result run(String mode) throws Exception {
+        String poolSize = "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE;
+        String[] args = "virtual".equals(mode)
+                ? new String[]{"--spring.profiles.active=virtual", poolSize}
+                : new String[]{poolSize};
+        try (ConfigurableApplicationContext context =
+                     BenchmarkContexts.startWeb(UserPassportDemoApplication.class, "load-" + mode, args)) {
+            FindAllBenchmark.seed(context.getBean(JdbcTemplate.class), USERS);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port + "/api/user/";
+
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                HttpClient http = HttpClient.newBuilder().executor(clients).build();
+                drive(http, baseUrl, clients, WARMUP);
+                Result result = drive(http, baseUrl, clients, DURATION);
+                result.mode = mode;
+                return result;
+            }
+        }
+    }
+
+    private static Result drive(HttpClient http, String baseUrl, ExecutorService clients, Duration duration)
+            throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Recorder>> workers = new ArrayList<>(CONCURRENCY);
+        for (int i = 0; i < CONCURRENCY; i++) {
+            workers.add(clients.submit(() -> {
+                Recorder recorder = new Recorder();
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = nextRequest(baseUrl);
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        // /fetch/{id} answers 302 FOUND, so anything below 400 counts as served
+                        recorder.record(System.nanoTime() - start, response.statusCode() < 400);
+                    } catch (Exception e) {
+                        recorder.record(System.nanoTime() - start, false);
+                    }
+                }
+                return recorder;
+            }));
+        }
+
+        Recorder total = new Recorder();
+        for (Future<Recorder> worker : workers) {
+            total.merge(worker.get());
+        }
+        return new Result(total, duration);
+    }
+
+    private static HttpRequest nextRequest(String baseUrl) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = random.nextLong(1, USERS + 1);
+        if (random.nextInt(100) < WRITE_PERCENT) {
+            String body = "{\"name\":\"user-" + id + "\",\"email\":\"user-" + id + "-" + random.nextInt(1000)
+                    + "@example.com\"}";
+            return HttpRequest.newBuilder(URI.create(baseUrl + id))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + "fetch/" + id)).GET().build();
+    }
+
+    // One per client thread, merged at the end, so recording never contends
+    private static final class Recorder {
+        private long[] latencies = new long[1 << 12];
+        private int count;
+        private long errors;
+
+        void record(long nanos, boolean ok) {
+            if (!ok) {
+                errors++;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        void merge(Recorder other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, count + other.count);
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+        }
+    }
+
+    private static final class Result {
+        private String mode;
+        private final double throughput;
+        private final long errors;
+        private final long[] sorted;
+
+        Result(Recorder recorder, Duration duration) {
+            this.sorted = Arrays.copyOf(recorder.latencies, recorder.count);
+            Arrays.sort(sorted);
+            this.throughput = recorder.count / (double) duration.toSeconds();
+            this.errors = recorder.errors;
+        }
+
+        double percentileMillis(double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+
+        void print() {
+            System.out.printf("%-9s %10.0f %8d %9.2f %9.2f %9.2f %9.2f%n", mode, throughput, errors,
+                    percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(100));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.dev.pranay.user_passport_bidirectional.cache;
+
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDto;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+// Read-through cache of UserDto by user id. Bounded by size (Caffeine's W-TinyLFU policy, which
+// keeps frequently read ids over ones that were only read once) and by time since the entry was loaded.
+// Cached DTOs are shared between requests, so callers must treat them as read-only.
+// Creates never need to evict: ids come from a sequence and are not reused, and misses are not cached.
+@Component
+public class UserDtoCache {
+
+    private final AsyncCache<Long, UserDto> cache;
+
+    public UserDtoCache(@Value("${user.dto-cache.max-size:10000}") long maxSize,
+                        @Value("${user.dto-cache.ttl:5m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    // Single flight: while one caller runs the loader for an id, other callers asking for the same id
+    // wait for that result instead of going to the database themselves. Neither misses nor exceptions are cached:
+    // a loader that finds nothing returns null, which Caffeine drops quietly and get hands back to the caller; a
+    // loader that throws fails the waiters too, and Caffeine logs it as the unexpected failure it is.
+    // The loader runs on the calling thread (so its transaction and SQL counters stay with the request)
+    // and outside of any map lock: a synchronous Caffeine load holds a ConcurrentHashMap bin monitor for
+    // the whole database round trip, which pins the carrier thread when the caller is a virtual thread.
+    public UserDto get(Long id, Function<Long, UserDto> loader) {
+        CompletableFuture<UserDto> placeholder = new CompletableFuture<>();
+        CompletableFuture<UserDto> inFlight = cache.asMap().putIfAbsent(id, placeholder);
+        if (inFlight == null) {
+            try {
+                placeholder.complete(loader.apply(id));
+            } catch (Throwable e) {
+                // Errors too, or the waiters would block on the placeholder forever
+                placeholder.completeExceptionally(e);
+                throw e;
+            }
+            inFlight = placeholder;
+        }
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // Evicts now and again once the surrounding transaction commits. Without the second eviction a
+    // concurrent reader could load the old row before our commit and put it back in the cache.
+    public void evict(Long id) {
+        if (id == null) {
+            return;
+        }
+        cache.synchronous().invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.synchronous().invalidate(id);
+                }
+            });
+        }
+    }
+}
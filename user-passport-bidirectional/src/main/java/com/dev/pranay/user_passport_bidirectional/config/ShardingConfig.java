@@ -0,0 +1,49 @@
+package com.dev.pranay.user_passport_bidirectional.config;
+
+import com.dev.pranay.user_passport_bidirectional.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Opt-in (--spring.profiles.active=sharded): a pool per database in user.sharding.urls behind one routing
+// DataSource, which Boot's DataSource auto-configuration then backs off for, so JPA, JdbcTemplate and the
+// transaction manager all go through it. Every shard gets the versioned schema before Hibernate validates it on
+// shard 0, which also gets the directory (global id sequence, passport number registry). See UserShards.
+@Configuration
+@Profile("sharded")
+public class ShardingConfig {
+
+    @Bean
+    public ShardRoutingDataSource dataSource(DataSourceProperties properties,
+                                             @Value("${user.sharding.urls}") List<String> urls,
+                                             @Value("${user.sharding.pool-size:10}") int poolSize,
+                                             @Value("${user.sharding.schema-locations}") Resource[] schema) {
+        List<DataSource> shards = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource shard = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(urls.get(i))
+                    .build();
+            shard.setPoolName("shard-" + i);
+            shard.setMaximumPoolSize(poolSize);
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator(schema);
+            if (i == 0) {
+                populator.addScript(new ClassPathResource("db/sharding/directory.sql"));
+            }
+            DatabasePopulatorUtils.execute(populator, shard);
+            shards.add(shard);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+}
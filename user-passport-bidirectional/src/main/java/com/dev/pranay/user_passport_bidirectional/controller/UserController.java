@@ -1,13 +1,24 @@
 package com.dev.pranay.user_passport_bidirectional.controller;
 
 import com.dev.pranay.user_passport_bidirectional.dtos.PassportDto;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDeleteRequest;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDeleteResultDto;
 import com.dev.pranay.user_passport_bidirectional.dtos.UserDto;
 import com.dev.pranay.user_passport_bidirectional.service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -16,6 +27,7 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<UserDto> createUser(@RequestBody UserDto userDto) {
@@ -23,6 +35,12 @@ public class UserController {
         return new ResponseEntity<>(user, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserDto>> createUsers(@RequestBody List<UserDto> userDtos) {
+        List<UserDto> users = userService.createUsers(userDtos);
+        return new ResponseEntity<>(users, HttpStatus.CREATED);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<UserDto> getUser(@PathVariable Long id) {
         UserDto userDto = userService.getUser(id);
@@ -35,15 +53,41 @@ public class UserController {
         return new ResponseEntity<>(deletedUser, HttpStatus.OK);
     }
 
+    // Bulk delete by {"ids": [...]} or {"createdBefore": "..."}
+    @DeleteMapping
+    public ResponseEntity<UserDeleteResultDto> deleteUsers(@RequestBody UserDeleteRequest request) {
+        UserDeleteResultDto result = userService.deleteUsers(request);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<UserDto> updateUser(@PathVariable Long id, @RequestBody UserDto userDto) {
         UserDto updatedUser = userService.createOrUpdateUser(id, userDto);
         return new ResponseEntity<>(updatedUser, HttpStatus.OK);
     }
 
+    // Written as the shards' pages are merged, the whole list is never held
     @GetMapping("/all")
-    public ResponseEntity<List<UserDto>> fetchAll() {
-        List<UserDto> userDtoList = userService.getAll();
-        return new ResponseEntity<>(userDtoList, HttpStatus.OK);
+    public ResponseEntity<StreamingResponseBody> fetchAll() {
+        StreamingResponseBody body = this::writeJsonArray;
+        // A StreamingResponseBody carries no type information for content negotiation
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Flushed when the generator closes, not after every user
+    private void writeJsonArray(OutputStream out) throws IOException {
+        ObjectWriter rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            userService.streamAll(userDto -> {
+                try {
+                    rowWriter.writeValue(generator, userDto);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
     }
 }
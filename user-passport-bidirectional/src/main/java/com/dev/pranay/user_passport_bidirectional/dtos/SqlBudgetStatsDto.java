@@ -0,0 +1,17 @@
+package com.dev.pranay.user_passport_bidirectional.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SqlBudgetStatsDto {
+
+    private String method;
+    private int budget;
+    private long transactions;
+    private long maxStatements;
+    private long overBudget;
+}
@@ -0,0 +1,9 @@
+package com.dev.pranay.user_passport_bidirectional.dtos;
+
+// Passport columns read back by the native user upsert in UserRepository (interface projection)
+public interface UpsertedPassport {
+
+    String getPassportNumber();
+
+    String getNationality();
+}
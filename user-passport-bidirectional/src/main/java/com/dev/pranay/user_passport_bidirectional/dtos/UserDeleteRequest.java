@@ -0,0 +1,18 @@
+package com.dev.pranay.user_passport_bidirectional.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Body of DELETE /api/user: either the ids to delete or every user created before a point in time
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserDeleteRequest {
+
+    private List<Long> ids;
+    private LocalDateTime createdBefore;
+}
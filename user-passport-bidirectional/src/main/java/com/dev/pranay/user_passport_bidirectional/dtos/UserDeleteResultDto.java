@@ -0,0 +1,16 @@
+package com.dev.pranay.user_passport_bidirectional.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserDeleteResultDto {
+
+    private long usersDeleted;
+    private long passportsDeleted;
+    private int chunks;
+    private long millis;
+}
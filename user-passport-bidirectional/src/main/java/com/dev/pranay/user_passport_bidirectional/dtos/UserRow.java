@@ -0,0 +1,19 @@
+package com.dev.pranay.user_passport_bidirectional.dtos;
+
+// A user and their passport as one row of the keyset pages behind GET /api/user/all (JPQL constructor expression
+// in UserRepository.findRowsAfter). The id orders the merge over the shards, the rest is the UserDto.
+public record UserRow(Long id, String name, String email, Long passportId, String passportNumber, String nationality) {
+
+    public UserDto toDto() {
+        UserDto userDto = new UserDto();
+        userDto.setName(name);
+        userDto.setEmail(email);
+        if (passportId != null) {
+            PassportDto passportDto = new PassportDto();
+            passportDto.setPassportNumber(passportNumber);
+            passportDto.setNationality(nationality);
+            userDto.setPassportDto(passportDto);
+        }
+        return userDto;
+    }
+}
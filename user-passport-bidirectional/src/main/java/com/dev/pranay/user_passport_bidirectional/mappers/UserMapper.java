@@ -4,7 +4,9 @@ import com.dev.pranay.user_passport_bidirectional.dtos.PassportDto;
 import com.dev.pranay.user_passport_bidirectional.dtos.UserDto;
 import com.dev.pranay.user_passport_bidirectional.models.Passport;
 import com.dev.pranay.user_passport_bidirectional.models.User;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 public class UserMapper {
 
 //    public static User toEntity(UserDto userDto) {
@@ -37,9 +39,9 @@ public static User toEntity(UserDto userDto) {
         user.setPassport(passport);
         passport.setUser(user);
 
-        System.out.println("Mapper: passport set with number = " + passport.getPassportNumber());
+        log.debug("Mapper: passport set with number = {}", passport.getPassportNumber());
     } else {
-        System.out.println("Mapper: PassportDto is null");
+        log.debug("Mapper: PassportDto is null");
     }
 
     return user;
@@ -0,0 +1,17 @@
+package com.dev.pranay.user_passport_bidirectional.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// The most SQL statements one transaction of the annotated UserService method may run, or the whole call when it
+// runs outside a transaction. It must not grow with the number of rows: that's an N+1. SqlBudgetGuard checks it.
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlBudget {
+
+    int value();
+}
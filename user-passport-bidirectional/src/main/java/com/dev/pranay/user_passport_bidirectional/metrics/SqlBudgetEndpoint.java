@@ -0,0 +1,24 @@
+package com.dev.pranay.user_passport_bidirectional.metrics;
+
+import com.dev.pranay.user_passport_bidirectional.dtos.SqlBudgetStatsDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// GET /actuator/sqlbudget: per budgeted UserService method, its budget, the transactions seen since startup,
+// the most statements one of them ran and how many went over
+@Component
+@Endpoint(id = "sqlbudget")
+@RequiredArgsConstructor
+public class SqlBudgetEndpoint {
+
+    private final SqlBudgetGuard sqlBudgetGuard;
+
+    @ReadOperation
+    public List<SqlBudgetStatsDto> statistics() {
+        return sqlBudgetGuard.getStatistics();
+    }
+}
@@ -0,0 +1,141 @@
+package com.dev.pranay.user_passport_bidirectional.metrics;
+
+import com.dev.pranay.user_passport_bidirectional.dtos.SqlBudgetStatsDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Checks @SqlBudget per transaction. UserServiceMetricsAspect opens a scope around each budgeted call; Boot
+// registers this listener on the transaction manager, so every transaction the call starts (one per retry
+// attempt or chunk) is counted from its begin to its commit or rollback, flush included. Over budget is a
+// WARN and user.service.sql.budget.exceeded in production; with user.sql-budget.fail-on-exceed (set for the
+// tests) the call fails, so an N+1 brought back by a later change breaks the build instead of production.
+@Slf4j
+@Component
+public class SqlBudgetGuard implements TransactionExecutionListener {
+
+    private static final ThreadLocal<Deque<Scope>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final Map<String, MethodStats> stats = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final boolean failOnExceed;
+
+    public SqlBudgetGuard(MeterRegistry meterRegistry,
+                          @Value("${user.sql-budget.fail-on-exceed:false}") boolean failOnExceed) {
+        this.meterRegistry = meterRegistry;
+        this.failOnExceed = failOnExceed;
+    }
+
+    @FunctionalInterface
+    public interface Call {
+        Object proceed() throws Throwable;
+    }
+
+    public Object watch(String method, int budget, Call call) throws Throwable {
+        Scope scope = new Scope(method, budget, SqlStatementCounter.currentCount());
+        Deque<Scope> scopes = SCOPES.get();
+        scopes.push(scope);
+        Object result;
+        try {
+            result = call.proceed();
+        } finally {
+            scopes.pop();
+            if (scope.transactions == 0) {
+                record(scope, SqlStatementCounter.currentCount() - scope.callStart);
+            }
+        }
+        if (failOnExceed && scope.worst > budget) {
+            throw new IllegalStateException(method + " ran " + scope.worst
+                    + " SQL statements in one transaction, its @SqlBudget is " + budget);
+        }
+        return result;
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, @Nullable Throwable beginFailure) {
+        Scope scope = SCOPES.get().peek();
+        if (scope != null && beginFailure == null && transaction.isNewTransaction()) {
+            scope.transactionStart = SqlStatementCounter.currentCount();
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, @Nullable Throwable commitFailure) {
+        transactionEnded(transaction);
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, @Nullable Throwable rollbackFailure) {
+        transactionEnded(transaction);
+    }
+
+    private void transactionEnded(TransactionExecution transaction) {
+        Scope scope = SCOPES.get().peek();
+        if (scope != null && transaction.isNewTransaction() && scope.transactionStart >= 0) {
+            scope.transactions++;
+            record(scope, SqlStatementCounter.currentCount() - scope.transactionStart);
+            scope.transactionStart = -1;
+        }
+    }
+
+    private void record(Scope scope, long statements) {
+        scope.worst = Math.max(scope.worst, statements);
+        MethodStats method = stats.computeIfAbsent(scope.method, name -> new MethodStats(scope.budget));
+        method.transactions.increment();
+        method.maxStatements.accumulate(statements);
+        if (statements > scope.budget) {
+            method.overBudget.increment();
+            meterRegistry.counter("user.service.sql.budget.exceeded", "method", scope.method).increment();
+            log.warn("{} ran {} SQL statements in one transaction, its @SqlBudget is {}",
+                    scope.method, statements, scope.budget);
+        }
+    }
+
+    public List<SqlBudgetStatsDto> getStatistics() {
+        return stats.entrySet().stream()
+                .map(entry -> new SqlBudgetStatsDto(entry.getKey(), entry.getValue().budget,
+                        entry.getValue().transactions.sum(), entry.getValue().maxStatements.get(),
+                        entry.getValue().overBudget.sum()))
+                .sorted(Comparator.comparing(SqlBudgetStatsDto::getMethod))
+                .toList();
+    }
+
+    private static final class Scope {
+        private final String method;
+        private final int budget;
+        private final long callStart;
+        private long transactionStart = -1;
+        private int transactions;
+        private long worst;
+
+        private Scope(String method, int budget, long callStart) {
+            this.method = method;
+            this.budget = budget;
+            this.callStart = callStart;
+        }
+    }
+
+    private static final class MethodStats {
+        private final int budget;
+        private final LongAdder transactions = new LongAdder();
+        private final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+        private final LongAdder overBudget = new LongAdder();
+
+        private MethodStats(int budget) {
+            this.budget = budget;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.dev.pranay.user_passport_bidirectional.metrics;
+
+// Statements executed through the application's DataSource (StatementCountingDataSource counts them at the JDBC
+// level, so JdbcTemplate and native SQL are included, and a JDBC batch counts once). The count is kept per thread
+// so callers can take the difference around a unit of work: UserServiceMetricsAspect per service call,
+// SqlBudgetGuard per transaction, tests and benchmarks around whatever they measure.
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    private SqlStatementCounter() {
+    }
+
+    public static long currentCount() {
+        return COUNT.get()[0];
+    }
+
+    static void increment() {
+        COUNT.get()[0]++;
+    }
+}
@@ -0,0 +1,73 @@
+package com.dev.pranay.user_passport_bidirectional.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// JDBC proxy around the pool: its connections hand out statements that count every execute* call (executeQuery,
+// executeUpdate, executeBatch...) into SqlStatementCounter. Everything else passes straight through, and unwrap()
+// still reaches the pool, which is how Boot's Hikari metrics and health indicator find it.
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    public StatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countingConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countingConnection(super.getConnection(username, password));
+    }
+
+    private static Connection countingConnection(Connection connection) {
+        return proxy(Connection.class, connection, (method, result) ->
+                // createStatement, prepareStatement and prepareCall; the declared type picks the proxy interface
+                result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())
+                        ? countingStatement(method.getReturnType(), statement)
+                        : result);
+    }
+
+    private static Object countingStatement(Class<?> type, Statement statement) {
+        return Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                handler(statement, (method, result) -> result, true));
+    }
+
+    private static <T> T proxy(Class<T> type, T target, ResultMapper resultMapper) {
+        return type.cast(Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, handler(target, resultMapper, false)));
+    }
+
+    private static InvocationHandler handler(Object target, ResultMapper resultMapper, boolean countExecutes) {
+        return (proxy, method, args) -> switch (method.getName()) {
+            // Identity of the proxy, not of the target, or a pool or cache keyed by connection would lose it
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> {
+                if (countExecutes && method.getName().startsWith("execute")) {
+                    SqlStatementCounter.increment();
+                }
+                try {
+                    yield resultMapper.map(method, method.invoke(target, args));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface ResultMapper {
+        Object map(Method method, Object result);
+    }
+}
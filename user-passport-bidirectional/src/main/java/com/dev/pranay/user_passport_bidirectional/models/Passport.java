@@ -1,5 +1,6 @@
 package com.dev.pranay.user_passport_bidirectional.models;
 
+import com.dev.pranay.user_passport_bidirectional.sharding.AssignedOrSequence;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -7,21 +8,25 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "passport")
+// Named, so a conflict on it can be told apart from other integrity violations (UserService.withConflictRetry)
+@Table(name = "passport", uniqueConstraints = @UniqueConstraint(name = Passport.PASSPORT_NUMBER_CONSTRAINT, columnNames = "passport_number"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
 @ToString(exclude = "user")
 public class Passport {
 
+    public static final String PASSPORT_NUMBER_CONSTRAINT = "uk_passport_number";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // See User.id
+    @AssignedOrSequence(sequenceName = "passport_seq", incrementSize = 50)
     private Long id;
 
-    @Column(unique = true)
     private String passportNumber;
 
     private String nationality;
@@ -30,11 +35,18 @@ public class Passport {
 
     private LocalDateTime expiryDate;
 
-    @OneToOne
+    // Owning side, so this one can be a lazy proxy: loading a passport (findByPassportNumber) doesn't pull in its user
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", unique = true, nullable = false)
 //    @JsonBackReference
     private User user;
 
+    // See User.version
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     public void prePersist() {
          if(this.issueDate == null) {
@@ -1,11 +1,13 @@
 package com.dev.pranay.user_passport_bidirectional.models;
 
+import com.dev.pranay.user_passport_bidirectional.sharding.AssignedOrSequence;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -20,7 +22,10 @@ import java.time.LocalDateTime;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // SEQUENCE instead of IDENTITY: Hibernate can't batch inserts when the id only exists after the INSERT.
+    // incrementSize = 50 lets the pooled optimizer hand out 50 ids per sequence call.
+    // An id set before persisting is kept: sharded, UserService assigns global ids (see UserShards).
+    @AssignedOrSequence(sequenceName = "users_seq", incrementSize = 50)
     private Long id;
     private String name;
     private String email;
@@ -35,6 +40,14 @@ public class User {
     @UpdateTimestamp
     private LocalDateTime modifiedAt;
 
+    // Optimistic locking: Hibernate adds "AND version = ?" to its UPDATEs/DELETEs and bumps the value, so a writer
+    // holding an older copy fails instead of silently overwriting. The native upserts bump it as well.
+    // The default covers rows inserted outside JPA (bulk loads, seeding).
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
 //    public void setPassport(Passport passport) {
 //        this.passport = passport;
 //        if(passport != null && passport.getUser() != this) {
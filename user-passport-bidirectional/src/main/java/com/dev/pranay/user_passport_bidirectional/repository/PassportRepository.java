@@ -2,9 +2,41 @@ package com.dev.pranay.user_passport_bidirectional.repository;
 
 import com.dev.pranay.user_passport_bidirectional.models.Passport;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface PassportRepository extends JpaRepository<Passport, Long> {
     Passport findByPassportNumber(String passportNumber);
+
+    // Bulk delete (DELETE /api/user): passport.user_id references users, so the passports go first. Native, for the
+    // OLD TABLE that returns the deleted passports' numbers in the same round trip (sharded, they're released from
+    // the passport number registry).
+    @Query(value = "SELECT passport_number FROM OLD TABLE (DELETE FROM passport WHERE user_id IN (:userIds))", nativeQuery = true)
+    List<String> deleteAllByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    // The user's current passport when a different number is being put on it (what orphanRemoval on User.passport does)
+    @Modifying
+    @Query(value = "DELETE FROM passport WHERE user_id = :userId AND passport_number <> :passportNumber", nativeQuery = true)
+    int deleteOtherPassportsOf(@Param("userId") Long userId, @Param("passportNumber") String passportNumber);
+
+    // Native MERGE on passport_number: an existing passport gets the nationality and moves to the user, a new one is
+    // inserted with newId. OLD TABLE returns the owner it had before the merge, nothing for an insert.
+    @Query(value = "SELECT user_id FROM OLD TABLE (MERGE INTO passport p USING (VALUES ("
+            + "CAST(:passportNumber AS VARCHAR), CAST(:nationality AS VARCHAR), CAST(:userId AS BIGINT), "
+            + "CAST(:newId AS BIGINT), CAST(:issueDate AS TIMESTAMP), CAST(:expiryDate AS TIMESTAMP))"
+            + ") s(passport_number, nationality, user_id, id, issue_date, expiry_date) ON p.passport_number = s.passport_number "
+            + "WHEN MATCHED THEN UPDATE SET nationality = s.nationality, user_id = s.user_id, version = p.version + 1 "
+            + "WHEN NOT MATCHED THEN INSERT (id, passport_number, nationality, issue_date, expiry_date, user_id, version) "
+            + "VALUES (s.id, s.passport_number, s.nationality, s.issue_date, s.expiry_date, s.user_id, 0))", nativeQuery = true)
+    Optional<Long> mergeForUser(@Param("passportNumber") String passportNumber, @Param("nationality") String nationality,
+                                @Param("userId") Long userId, @Param("newId") Long newId,
+                                @Param("issueDate") LocalDateTime issueDate, @Param("expiryDate") LocalDateTime expiryDate);
 }
@@ -1,9 +1,54 @@
 package com.dev.pranay.user_passport_bidirectional.repository;
 
+import com.dev.pranay.user_passport_bidirectional.dtos.UpsertedPassport;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserRow;
 import com.dev.pranay.user_passport_bidirectional.models.User;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    // User.passport is the mappedBy side of the one-to-one, Hibernate can't put a proxy there and
+    // would run one passport SELECT per user after a plain findAll. The entity graph turns it into
+    // a LEFT JOIN in the same statement instead.
+    @Override
+    @EntityGraph(attributePaths = "passport")
+    List<User> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "passport")
+    Optional<User> findById(Long id);
+
+    // One keyset page of GET /api/user/all: the users after an id, in id order, as rows rather than entities, so
+    // the pages don't pile up in a persistence context held open for the response
+    @Query("SELECT new com.dev.pranay.user_passport_bidirectional.dtos.UserRow(u.id, u.name, u.email, p.id, "
+            + "p.passportNumber, p.nationality) FROM User u LEFT JOIN u.passport p WHERE u.id > :afterId ORDER BY u.id")
+    List<UserRow> findRowsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    // Bulk delete (DELETE /api/user), no entity load or per-row cascade as with deleteById
+    @Query("SELECT u.id FROM User u WHERE u.createdAt < :createdBefore ORDER BY u.id")
+    List<Long> findIdsCreatedBefore(@Param("createdBefore") LocalDateTime createdBefore, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Native update (H2 data change delta table): the UPDATE runs inside FINAL TABLE, so the same round trip reads
+    // the user's passport back. No row: the user doesn't exist.
+    @Query(value = "SELECT p.passport_number AS passportNumber, p.nationality AS nationality "
+            + "FROM FINAL TABLE (UPDATE users SET name = :name, email = :email, modified_at = :modifiedAt, version = version + 1 WHERE id = :id) u "
+            + "LEFT JOIN passport p ON p.user_id = u.id", nativeQuery = true)
+    Optional<UpsertedPassport> updateUser(@Param("id") Long id, @Param("name") String name,
+                                          @Param("email") String email, @Param("modifiedAt") LocalDateTime modifiedAt);
 }
@@ -1,28 +1,79 @@
 package com.dev.pranay.user_passport_bidirectional.service;
 
+import com.dev.pranay.user_passport_bidirectional.cache.UserDtoCache;
 import com.dev.pranay.user_passport_bidirectional.dtos.PassportDto;
+import com.dev.pranay.user_passport_bidirectional.dtos.UpsertedPassport;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDeleteRequest;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDeleteResultDto;
 import com.dev.pranay.user_passport_bidirectional.dtos.UserDto;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserRow;
 import com.dev.pranay.user_passport_bidirectional.mappers.UserMapper;
+import com.dev.pranay.user_passport_bidirectional.metrics.SqlBudget;
 import com.dev.pranay.user_passport_bidirectional.models.Passport;
 import com.dev.pranay.user_passport_bidirectional.models.User;
 import com.dev.pranay.user_passport_bidirectional.repository.PassportRepository;
 import com.dev.pranay.user_passport_bidirectional.repository.UserRepository;
-import jakarta.transaction.Transactional;
+import com.dev.pranay.user_passport_bidirectional.sharding.UserShards;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
     private final PassportRepository passportRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final UserDtoCache userDtoCache;
+    private final UserShards userShards;
+
+    @Value("${user.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    @Value("${user.delete.chunk-size:1000}")
+    private int deleteChunkSize;
+
+    @Value("${user.read.page-size:500}")
+    private int readPageSize;
+
+    @Value("${user.update.max-attempts:5}")
+    private int updateMaxAttempts;
+
+    @Value("${user.update.backoff:10ms}")
+    private Duration updateBackoff;
 
 //    @Transactional
+    // The two inserts, and a sequence fetch each for user and passport when their pooled block runs out (two on the
+    // first use after startup)
+    @SqlBudget(6)
     public UserDto createUser(UserDto userDto) {
         User user = UserMapper.toEntity(userDto);
         Passport passport = user.getPassport();
@@ -32,30 +83,185 @@ public class UserService {
             passport.setUser(user);
         }
 
-        System.out.println("Passport inside user before saving: " + user.getPassport());
-        System.out.println("User inside passport: " + (user.getPassport() != null ? user.getPassport().getUser() : null));
+        // Sharded, the ids decide the shard, so they're assigned before the insert and the passport number is
+        // claimed over all shards first; released again if the insert fails
+        assignIds(user);
+        Map<String, Long> passportNumbers = passportNumbersOf(List.of(user));
+        userShards.reservePassportNumbers(passportNumbers);
 
-        User savedUser = userRepository.save(user); // Cascade saves passport
+        log.debug("Passport inside user before saving: {}", user.getPassport());
+
+        User savedUser;
+        try {
+            savedUser = userShards.onShardOf(user.getId(), () -> userRepository.save(user)); // Cascade saves passport
+        } catch (RuntimeException e) {
+            userShards.releasePassportNumbers(passportNumbers.keySet());
+            throw e;
+        }
         return UserMapper.toDto(savedUser);
     }
 
+    // Global ids when sharded, nulls (the sequences assign them) when not
+    private void assignIds(User user) {
+        user.setId(userShards.nextId());
+        if (user.getPassport() != null) {
+            user.getPassport().setId(userShards.nextId());
+        }
+    }
+
+    // Twice in one batch is caught here: sharded, the two users could land on shards whose constraints never meet
+    private static Map<String, Long> passportNumbersOf(List<User> users) {
+        Map<String, Long> numbers = new LinkedHashMap<>();
+        for (User user : users) {
+            if (user.getPassport() != null && user.getPassport().getPassportNumber() != null
+                    && numbers.put(user.getPassport().getPassportNumber(), user.getId()) != null) {
+                throw new DuplicateKeyException("Passport number " + user.getPassport().getPassportNumber()
+                        + " is given to more than one user");
+            }
+        }
+        return numbers;
+    }
+
+    // Each chunk commits on its own, so a failure part way through keeps the chunks before it. Sharded, a chunk is
+    // a transaction per shard its users fall on, and a failing one keeps the shards before it too. The budget is per
+    // chunk: at 500 users per chunk and hibernate.jdbc.batch_size=50, ten insert batches and ten sequence fetches
+    // each for users and passports, one more fetch each on first use. It grows with the chunk size, not the input.
+    @SqlBudget(42)
+    public List<UserDto> createUsers(List<UserDto> userDtos) {
+        List<UserDto> created = new ArrayList<>(userDtos.size());
+        for (int from = 0; from < userDtos.size(); from += batchChunkSize) {
+            List<User> users = userDtos.subList(from, Math.min(from + batchChunkSize, userDtos.size())).stream()
+                    .map(UserMapper::toEntity) // sets up both sides of the user/passport link
+                    .collect(Collectors.toList());
+            users.forEach(this::assignIds);
+            int committed = created.size();
+            try {
+                userShards.reservePassportNumbers(passportNumbersOf(users));
+                List<List<User>> shardChunks = new ArrayList<>(userShards.byShard(users, User::getId).values());
+                for (int i = 0; i < shardChunks.size(); i++) {
+                    List<User> shardChunk = shardChunks.get(i);
+                    try {
+                        userShards.onShardOf(shardChunk.get(0).getId(),
+                                () -> transactionTemplate.execute(status -> persistChunk(shardChunk)));
+                    } catch (RuntimeException e) {
+                        userShards.releasePassportNumbers(shardChunks.subList(i, shardChunks.size()).stream()
+                                .flatMap(rest -> passportNumbersOf(rest).keySet().stream())
+                                .toList());
+                        throw e;
+                    }
+                    committed += shardChunk.size();
+                }
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Batch create failed after " + committed + " users were committed", e);
+            }
+            users.stream()
+                    .map(UserMapper::toDto)
+                    .forEach(created::add);
+        }
+        return created;
+    }
+
+    private List<User> persistChunk(List<User> users) {
+        userRepository.saveAll(users);
+        // flush sends the inserts as JDBC batches (hibernate.jdbc.batch_size), clear drops the chunk from the context
+        entityManager.flush();
+        entityManager.clear();
+        return users;
+    }
+
+    @SqlBudget(1)
     public UserDto getUser(Long id) {
-        User user = userRepository.findById(id).orElseThrow(() ->
-                new RuntimeException("User not found with given id: " + id));
-        return UserMapper.toDto(user);
+        UserDto user = userDtoCache.get(id, this::loadUser);
+        if (user == null) {
+            throw new RuntimeException("User not found with given id: " + id);
+        }
+        return user;
     }
 
+    // Null when there is no such user, see UserDtoCache.get. Read-only, so Hibernate keeps no snapshot to dirty-check
+    // and the flush is skipped; opened on the user's shard, and only on a cache miss.
+    private UserDto loadUser(Long id) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return userShards.onShardOf(id, () -> readOnly.execute(status ->
+                userRepository.findById(id).map(UserMapper::toDto).orElse(null)));
+    }
+
+    @SqlBudget(2)
     public String deleteUser(Long id) {
-        userRepository.deleteById(id);
+        userShards.onShardOf(id, () -> transactionTemplate.execute(status -> deleteChunk(List.of(id))));
         return "User successfully deleted...";
     }
 
-    public List<UserDto> getAll() {
-        List<User> userList = userRepository.findAll();
-        List<UserDto> userDtos = userList.stream()
-                .map(user -> UserMapper.toDto(user))
-                .collect(Collectors.toList());
-        return userDtos;
+    // Deletes by id list or by creation date, one transaction per chunk of user.delete.chunk-size users. A chunk is
+    // two statements whatever its size, and the chunks committed before a failure stay deleted. Sharded, the ids are
+    // chunked per shard, and the creation date runs its loop on one shard after the other.
+    @SqlBudget(3)
+    public UserDeleteResultDto deleteUsers(UserDeleteRequest request) {
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        if (byIds == (request.getCreatedBefore() != null)) {
+            throw new IllegalArgumentException("Give either ids or createdBefore to delete users");
+        }
+        long start = System.nanoTime();
+        long users = 0;
+        long passports = 0;
+        int chunks = 0;
+        if (byIds) {
+            for (Map.Entry<Integer, List<Long>> shard : userShards.byShard(request.getIds().stream().distinct().toList(),
+                    id -> id).entrySet()) {
+                List<Long> ids = shard.getValue();
+                for (int from = 0; from < ids.size(); from += deleteChunkSize) {
+                    List<Long> chunk = ids.subList(from, Math.min(from + deleteChunkSize, ids.size()));
+                    DeletedRows deleted = userShards.onShard(shard.getKey(),
+                            () -> transactionTemplate.execute(status -> deleteChunk(chunk)));
+                    users += deleted.users();
+                    passports += deleted.passports();
+                    chunks++;
+                }
+            }
+        } else {
+            for (int shard = 0; shard < userShards.count(); shard++) {
+                // Each chunk deletes the rows the next lookup would return again, so no afterId is needed
+                while (true) {
+                    DeletedRows deleted = userShards.onShard(shard, () -> transactionTemplate.execute(status -> {
+                        List<Long> chunk = userRepository.findIdsCreatedBefore(request.getCreatedBefore(), Limit.of(deleteChunkSize));
+                        return chunk.isEmpty() ? null : deleteChunk(chunk);
+                    }));
+                    if (deleted == null) {
+                        break;
+                    }
+                    users += deleted.users();
+                    passports += deleted.passports();
+                    chunks++;
+                }
+            }
+        }
+        return new UserDeleteResultDto(users, passports, chunks, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // The passports go with their users, as orphanRemoval on User.passport would do one entity at a time
+    private DeletedRows deleteChunk(List<Long> ids) {
+        List<String> passportNumbers = passportRepository.deleteAllByUserIdIn(ids);
+        int users = userRepository.deleteAllByIdIn(ids);
+        ids.forEach(userDtoCache::evict);
+        userShards.releasePassportNumbersAfterCommit(passportNumbers);
+        return new DeletedRows(users, passportNumbers.size());
+    }
+
+    private record DeletedRows(int users, int passports) {
+    }
+
+    // Every user, read a page (and a read-only transaction) at a time and handed to the sink as it's read. Sharded,
+    // the shards' pages are merged by id, so the order is the same as on one database.
+    @SqlBudget(1)
+    public void streamAll(Consumer<UserDto> sink) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        userShards.mergeFromEveryShard(
+                        afterId -> readOnly.execute(status -> userRepository.findRowsAfter(afterId, Limit.of(readPageSize))),
+                        readPageSize, UserRow::id)
+                .map(UserRow::toDto)
+                .forEach(sink);
     }
 
 //    public UserDto createOrUpdateUser(Long id, UserDto userDto) {
@@ -78,7 +284,151 @@ public class UserService {
 //        return UserMapper.toDto(userRepository.save(user));
 //    }
 
+    // Existing user: an UPDATE for users and a MERGE on passport_number (plus a DELETE when the user's passport is
+    // replaced by another number) instead of findById, findByPassportNumber, the merge SELECTs and the UPDATEs.
+    // A user that doesn't exist yet needs a generated id and goes through JPA: the UPDATE that finds nothing, findById
+    // and createUser's six.
+    @SqlBudget(8)
     public UserDto createOrUpdateUser(Long id, UserDto userDto) {
+        if (userShards.isSharded()) {
+            return createOrUpdateShardedUser(id, userDto);
+        }
+        return withConflictRetry(() -> upsertUser(id, userDto));
+    }
+
+    // The same upsert on the user's shard, once the registry has given the passport number to the user. A number held
+    // by a user on another shard is taken from there too, as the MERGE takes it from a user on the same database, but
+    // only once the upsert has committed: if it fails, the registry entry goes back to the previous holder, who never
+    // lost their passport. No distributed transaction: the registry is claimed first, so two users can't end up
+    // holding the same number.
+    // A user that doesn't exist is created like createUser does, with a new global id (its shard follows from it).
+    private UserDto createOrUpdateShardedUser(Long id, UserDto userDto) {
+        if (id == null || !userShards.onShardOf(id, () -> userRepository.existsById(id))) {
+            return createUser(userDto);
+        }
+        PassportDto passportDto = userDto.getPassportDto();
+        if (passportDto == null) {
+            return userShards.onShardOf(id, () -> withConflictRetry(() -> upsertUser(id, userDto)));
+        }
+
+        String passportNumber = passportDto.getPassportNumber();
+        Long previousOwnerId = userShards.claimPassportNumber(passportNumber, id);
+        UserDto saved;
+        try {
+            saved = userShards.onShardOf(id, () -> withConflictRetry(() -> upsertUser(id, userDto)));
+        } catch (RuntimeException | Error e) {
+            userShards.unclaimPassportNumber(passportNumber, id, previousOwnerId);
+            throw e;
+        }
+        if (previousOwnerId != null && userShards.shardOf(previousOwnerId) != userShards.shardOf(id)) {
+            userShards.onShardOf(previousOwnerId, () -> transactionTemplate.execute(status ->
+                    passportRepository.deleteAllByUserIdIn(List.of(previousOwnerId))));
+            userDtoCache.evict(previousOwnerId);
+        }
+        userShards.releaseOtherPassportNumbersOf(id, passportNumber);
+        return saved;
+    }
+
+    private UserDto upsertUser(Long id, UserDto userDto) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<UpsertedPassport> current = id == null
+                ? Optional.empty()
+                : userRepository.updateUser(id, userDto.getName(), userDto.getEmail(), now);
+        if (current.isEmpty()) {
+            if (userShards.isSharded()) {
+                // Deleted since createOrUpdateShardedUser checked; a new user here would get an id of the wrong shard
+                throw new RuntimeException("User not found with given id: " + id);
+            }
+            return createOrUpdateUserWithJpa(id, userDto);
+        }
+
+        UserDto saved = new UserDto();
+        saved.setName(userDto.getName());
+        saved.setEmail(userDto.getEmail());
+        PassportDto passportDto = userDto.getPassportDto();
+        if (passportDto == null) {
+            if (current.get().getPassportNumber() != null) {
+                PassportDto unchanged = new PassportDto();
+                unchanged.setPassportNumber(current.get().getPassportNumber());
+                unchanged.setNationality(current.get().getNationality());
+                saved.setPassportDto(unchanged);
+            }
+            userDtoCache.evict(id);
+            return saved;
+        }
+
+        passportRepository.deleteOtherPassportsOf(id, passportDto.getPassportNumber());
+        // Same defaults as Passport.prePersist, only used when the MERGE inserts
+        Long previousOwnerId = passportRepository.mergeForUser(passportDto.getPassportNumber(), passportDto.getNationality(),
+                id, nextPassportId(), now, now.plusYears(10)).orElse(null);
+
+        userDtoCache.evict(id);
+        userDtoCache.evict(previousOwnerId);
+        PassportDto savedPassport = new PassportDto();
+        savedPassport.setPassportNumber(passportDto.getPassportNumber());
+        savedPassport.setNationality(passportDto.getNationality());
+        saved.setPassportDto(savedPassport);
+        return saved;
+    }
+
+    // User and Passport are @Version'ed: of two updates that read the same row, the second to commit fails with an
+    // OptimisticLockingFailureException instead of overwriting the first. Two updates that both find no passport with
+    // a number both insert it, and the second hits the passport_number constraint; on the next attempt it finds the
+    // passport and takes it over. Any other integrity violation (a value too long, a missing user) fails the same
+    // way every time and is thrown right away. Each attempt is a new transaction with a randomised exponential
+    // backoff before it.
+    private <T> T withConflictRetry(Supplier<T> update) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> update.get());
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                if (attempt >= updateMaxAttempts || !isConflict(e)) {
+                    throw e;
+                }
+                log.debug("Update conflict on attempt {}, retrying", attempt, e);
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    private static boolean isConflict(RuntimeException e) {
+        if (e instanceof ConcurrencyFailureException) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            // H2 names the index behind the constraint, e.g. PUBLIC.UK_PASSPORT_NUMBER_INDEX_7
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase(Locale.ROOT).contains(Passport.PASSPORT_NUMBER_CONSTRAINT);
+            }
+        }
+        return false;
+    }
+
+    private void backOff(int attempt, RuntimeException conflict) {
+        long maxMillis = updateBackoff.toMillis() << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxMillis / 2, maxMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    // From Hibernate's own pooled generator, so ids inserted natively never collide with ones it hands out.
+    // Usually no round trip; an update that matches an existing passport just leaves a gap in the sequence.
+    // Sharded, a global id instead.
+    private Long nextPassportId() {
+        Long globalId = userShards.nextId();
+        if (globalId != null) {
+            return globalId;
+        }
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(Passport.class).getGenerator();
+        return (Long) generator.generate(session, null, null, EventType.INSERT);
+    }
+
+    private UserDto createOrUpdateUserWithJpa(Long id, UserDto userDto) {
         // Find user by id, if not found create a new user
         User user = (id != null) ?
                 userRepository.findById(id).orElse(new User()) :
@@ -88,11 +438,14 @@ public class UserService {
         user.setName(userDto.getName());
         user.setEmail(userDto.getEmail());
 
+        Long previousOwnerId = null;
         if (userDto.getPassportDto() != null) {
             // Check if the passport number already exists in the database
             Passport existingPassport = passportRepository.findByPassportNumber(userDto.getPassportDto().getPassportNumber());
 
             if (existingPassport != null) {
+                // The passport may be moving away from another user, whose cached DTO would still show it
+                previousOwnerId = existingPassport.getUser() != null ? existingPassport.getUser().getId() : null;
                 // If passport exists, update the passport details and associate it with the user
                 existingPassport.setNationality(userDto.getPassportDto().getNationality());
                 // You can update other fields like passport number if needed, but passport number should ideally remain unique
@@ -112,7 +465,10 @@ public class UserService {
         }
 
             // Save user and return the DTO
-            return UserMapper.toDto(userRepository.save(user));
+            User savedUser = userRepository.save(user);
+            userDtoCache.evict(savedUser.getId());
+            userDtoCache.evict(previousOwnerId);
+            return UserMapper.toDto(savedUser);
 
     }
 
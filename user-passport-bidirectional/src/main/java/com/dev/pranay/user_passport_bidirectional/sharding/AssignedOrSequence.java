@@ -0,0 +1,22 @@
+package com.dev.pranay.user_passport_bidirectional.sharding;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+// Puts AssignedOrSequenceGenerator on an @Id: the entity's own pooled sequence, unless the id was set beforehand
+@IdGeneratorType(AssignedOrSequenceGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface AssignedOrSequence {
+
+    String sequenceName();
+
+    // Ids handed out per sequence call by the pooled optimizer
+    int incrementSize() default 50;
+}
@@ -0,0 +1,38 @@
+package com.dev.pranay.user_passport_bidirectional.sharding;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+// The usual pooled sequence, except that an id already set on the entity is kept. Sharded, UserService assigns
+// global ids before persisting, since the id decides the shard the insert has to run on.
+public class AssignedOrSequenceGenerator extends SequenceStyleGenerator {
+
+    private final AssignedOrSequence config;
+
+    public AssignedOrSequenceGenerator(AssignedOrSequence config) {
+        this.config = config;
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        parameters.put(SEQUENCE_PARAM, config.sequenceName());
+        parameters.put(INCREMENT_PARAM, String.valueOf(config.incrementSize()));
+        super.configure(type, parameters, serviceRegistry);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        Object assigned = object == null ? null : session.getEntityPersister(null, object).getIdentifier(object, session);
+        return assigned != null ? assigned : super.generate(session, object);
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+}
@@ -0,0 +1,23 @@
+package com.dev.pranay.user_passport_bidirectional.sharding;
+
+// The shard the current thread works on, read by ShardRoutingDataSource when a connection is taken. Set through
+// UserShards.onShard, which restores the previous value afterwards; null means the default shard.
+final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    static Integer current() {
+        return CURRENT.get();
+    }
+
+    static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.dev.pranay.user_passport_bidirectional.sharding;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Where a user lives when the application runs sharded (the sharded profile, ShardingConfig): every user, with
+// their passport, on the shard a hash of the user id picks. Ids come from a global sequence so they're known before
+// the insert, and passport numbers are claimed in a registry, since each shard's unique constraint only sees its
+// own passports. Both live on shard 0, the directory, and are used outside of the shard transactions.
+// Unsharded there is one shard, the application's DataSource, and all of this runs the work as it is: Hibernate's
+// sequences hand out the ids and the passport_number constraint does the uniqueness check.
+@Component
+public class UserShards implements DisposableBean {
+
+    // The increment of global_id_seq (db/sharding/directory.sql): one round trip hands out this many ids
+    private static final int ID_BLOCK_SIZE = 100;
+
+    private final ShardRoutingDataSource shards;
+    private final NamedParameterJdbcTemplate directory;
+    // Fan-out queries, one virtual thread per shard
+    private final ExecutorService fanOut = Executors.newVirtualThreadPerTaskExecutor();
+    // Not synchronized: a virtual thread waiting on a monitor during the sequence round trip would pin its carrier
+    private final ReentrantLock idLock = new ReentrantLock();
+    private long nextId;
+    private long idBlockEnd;
+
+    public UserShards(DataSource dataSource) throws SQLException {
+        this.shards = dataSource.isWrapperFor(ShardRoutingDataSource.class)
+                ? dataSource.unwrap(ShardRoutingDataSource.class)
+                : null;
+        this.directory = shards == null ? null : new NamedParameterJdbcTemplate(shards.shard(0));
+    }
+
+    public boolean isSharded() {
+        return shards != null;
+    }
+
+    public int count() {
+        return shards == null ? 1 : shards.size();
+    }
+
+    // A multiplicative hash rather than the id itself: ids are handed out in patterns (a user's, then their
+    // passport's) that id % shards would turn into all users on the even shards
+    public int shardOf(Long userId) {
+        if (shards == null) {
+            return 0;
+        }
+        Objects.requireNonNull(userId, "userId");
+        return Math.floorMod(Long.hashCode(userId * 0x9E3779B97F4A7C15L), shards.size());
+    }
+
+    // Runs the work with its connections (and so its transactions) on the given shard. The shard is fixed when a
+    // transaction takes its connection, so switching to another one inside a transaction is refused.
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (shards == null) {
+            return work.get();
+        }
+        Integer previous = ShardContext.current();
+        int current = previous == null ? 0 : previous;
+        if (current != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Shard " + shard + " needed inside a transaction on shard " + current);
+        }
+        ShardContext.set(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    public <T> T onShardOf(Long userId, Supplier<T> work) {
+        return shards == null ? work.get() : onShard(shardOf(userId), work);
+    }
+
+    // Items grouped by the shard of their user, in shard order
+    public <K> Map<Integer, List<K>> byShard(Collection<K> items, Function<K, Long> userId) {
+        if (shards == null) {
+            return Map.of(0, List.copyOf(items));
+        }
+        return items.stream().collect(Collectors.groupingBy(item -> shardOf(userId.apply(item)), TreeMap::new,
+                Collectors.toList()));
+    }
+
+    // Every shard's items as one stream ordered by key, a k-way merge of keyset cursors: pageAfter reads the next
+    // pageSize items after a key from the current shard, in key order. The first pages are read on every shard at
+    // once, a shard's next page when the merge has used up the one before, so no more than a page per shard is held
+    // at a time. Sharded the pages are read on the fan-out threads, which aren't the caller's: their statements
+    // don't count towards its @SqlBudget. Unsharded the one shard's pages are read on the calling thread.
+    public <T> Stream<T> mergeFromEveryShard(LongFunction<List<T>> pageAfter, int pageSize, ToLongFunction<T> key) {
+        List<List<T>> firstPages = new ArrayList<>(count());
+        if (shards == null) {
+            firstPages.add(pageAfter.apply(Long.MIN_VALUE));
+        } else {
+            List<Future<List<T>>> results = new ArrayList<>(shards.size());
+            for (int shard = 0; shard < shards.size(); shard++) {
+                int target = shard;
+                results.add(fanOut.submit(() -> onShard(target, () -> pageAfter.apply(Long.MIN_VALUE))));
+            }
+            for (Future<List<T>> result : results) {
+                firstPages.add(join(result, results));
+            }
+        }
+        PriorityQueue<ShardCursor<T>> heads = new PriorityQueue<>(
+                Comparator.comparingLong((ShardCursor<T> cursor) -> key.applyAsLong(cursor.head())));
+        for (int shard = 0; shard < firstPages.size(); shard++) {
+            ShardCursor<T> cursor = new ShardCursor<>(shard, firstPages.get(shard));
+            if (cursor.hasNext()) {
+                heads.add(cursor);
+            }
+        }
+        Iterator<T> merged = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                ShardCursor<T> cursor = heads.poll();
+                if (cursor == null) {
+                    throw new NoSuchElementException();
+                }
+                T item = cursor.next();
+                // A short page was the shard's last one
+                if (!cursor.hasNext() && cursor.pageSize() == pageSize) {
+                    cursor.nextPage(nextPage(cursor.shard(), pageAfter, key.applyAsLong(item)));
+                }
+                if (cursor.hasNext()) {
+                    heads.add(cursor);
+                }
+                return item;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+    }
+
+    private <T> List<T> nextPage(int shard, LongFunction<List<T>> pageAfter, long after) {
+        if (shards == null) {
+            return pageAfter.apply(after);
+        }
+        Future<List<T>> result = fanOut.submit(() -> onShard(shard, () -> pageAfter.apply(after)));
+        return join(result, List.of(result));
+    }
+
+    // A shard's current page in the merge and the position in it
+    private static final class ShardCursor<T> {
+
+        private final int shard;
+        private List<T> page;
+        private int position;
+
+        ShardCursor(int shard, List<T> page) {
+            this.shard = shard;
+            this.page = page;
+        }
+
+        int shard() {
+            return shard;
+        }
+
+        int pageSize() {
+            return page.size();
+        }
+
+        boolean hasNext() {
+            return position < page.size();
+        }
+
+        T head() {
+            return page.get(position);
+        }
+
+        T next() {
+            return page.get(position++);
+        }
+
+        void nextPage(List<T> next) {
+            page = next;
+            position = 0;
+        }
+    }
+
+    private static <T> List<T> join(Future<List<T>> result, List<Future<List<T>>> all) {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            all.forEach(other -> other.cancel(true));
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            all.forEach(other -> other.cancel(true));
+            throw new RuntimeException("Interrupted while reading from the shards", e);
+        }
+    }
+
+    // Sharded, a new id from global_id_seq, unique over all shards; unsharded null, the entity's sequence assigns it
+    public Long nextId() {
+        if (shards == null) {
+            return null;
+        }
+        idLock.lock();
+        try {
+            if (nextId == idBlockEnd) {
+                nextId = directory.getJdbcTemplate().queryForObject("SELECT NEXT VALUE FOR global_id_seq", Long.class);
+                idBlockEnd = nextId + ID_BLOCK_SIZE;
+            }
+            return nextId++;
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    // Claims the numbers for their users in one statement, all or none. A number that's already claimed fails with
+    // a DuplicateKeyException, as the passport_number constraint would on a single database.
+    public void reservePassportNumbers(Map<String, Long> userIdByNumber) {
+        if (shards == null || userIdByNumber.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        List<String> rows = new ArrayList<>(userIdByNumber.size());
+        int row = 0;
+        for (Map.Entry<String, Long> entry : userIdByNumber.entrySet()) {
+            rows.add("(:number" + row + ", :userId" + row + ")");
+            parameters.addValue("number" + row, entry.getKey()).addValue("userId" + row, entry.getValue());
+            row++;
+        }
+        directory.update("INSERT INTO passport_number_registry (passport_number, user_id) VALUES "
+                + String.join(", ", rows), parameters);
+    }
+
+    // Gives the number to the user whoever held it (what the passport MERGE in UserService does on one database)
+    // and returns the previous holder, null when the number was free
+    public Long claimPassportNumber(String passportNumber, Long userId) {
+        if (shards == null) {
+            return null;
+        }
+        List<Long> previous = directory.queryForList("SELECT user_id FROM OLD TABLE (MERGE INTO passport_number_registry r "
+                + "USING (VALUES (CAST(:number AS VARCHAR), CAST(:userId AS BIGINT))) s(passport_number, user_id) "
+                + "ON r.passport_number = s.passport_number "
+                + "WHEN MATCHED THEN UPDATE SET user_id = s.user_id "
+                + "WHEN NOT MATCHED THEN INSERT (passport_number, user_id) VALUES (s.passport_number, s.user_id))",
+                new MapSqlParameterSource("number", passportNumber).addValue("userId", userId), Long.class);
+        return previous.isEmpty() ? null : previous.get(0);
+    }
+
+    // Undoes claimPassportNumber after the update it was for failed: back to the previous holder, or free again.
+    // Only while the user still holds it, a later claim by someone else stands.
+    public void unclaimPassportNumber(String passportNumber, Long userId, Long previousOwnerId) {
+        if (shards == null || userId.equals(previousOwnerId)) {
+            return;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource("number", passportNumber).addValue("userId", userId);
+        if (previousOwnerId == null) {
+            directory.update("DELETE FROM passport_number_registry WHERE passport_number = :number AND user_id = :userId",
+                    parameters);
+        } else {
+            directory.update("UPDATE passport_number_registry SET user_id = :previousOwnerId "
+                    + "WHERE passport_number = :number AND user_id = :userId",
+                    parameters.addValue("previousOwnerId", previousOwnerId));
+        }
+    }
+
+    public void releasePassportNumbers(Collection<String> passportNumbers) {
+        List<String> numbers = passportNumbers.stream().filter(Objects::nonNull).toList();
+        if (shards == null || numbers.isEmpty()) {
+            return;
+        }
+        directory.update("DELETE FROM passport_number_registry WHERE passport_number IN (:numbers)",
+                new MapSqlParameterSource("numbers", numbers));
+    }
+
+    // Once the surrounding transaction has deleted the passports; a rollback keeps them claimed
+    public void releasePassportNumbersAfterCommit(Collection<String> passportNumbers) {
+        if (shards == null || passportNumbers.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            releasePassportNumbers(passportNumbers);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                releasePassportNumbers(passportNumbers);
+            }
+        });
+    }
+
+    // The numbers the user held apart from the one they keep, after their passport was replaced
+    public void releaseOtherPassportNumbersOf(Long userId, String keptNumber) {
+        if (shards == null) {
+            return;
+        }
+        directory.update("DELETE FROM passport_number_registry WHERE user_id = :userId AND passport_number <> :kept",
+                new MapSqlParameterSource("userId", userId).addValue("kept", keptNumber));
+    }
+
+    @Override
+    public void destroy() {
+        fanOut.close();
+    }
+}
@@ -0,0 +1,29 @@
+-- Schema for the fast-startup profile, which validates the entities against it instead of generating it.
+-- Each version is applied in order on every start (spring.sql.init.schema-locations), so statements must be
+-- safe to re-run against a database that already has them.
+
+create sequence if not exists users_seq start with 1 increment by 50;
+create sequence if not exists passport_seq start with 1 increment by 50;
+
+create table if not exists users (
+    id bigint not null,
+    name varchar(255),
+    email varchar(255),
+    created_at timestamp(6),
+    modified_at timestamp(6),
+    version bigint default 0 not null,
+    primary key (id)
+);
+
+create table if not exists passport (
+    id bigint not null,
+    passport_number varchar(255),
+    nationality varchar(255),
+    issue_date timestamp(6),
+    expiry_date timestamp(6),
+    user_id bigint not null unique,
+    version bigint default 0 not null,
+    primary key (id),
+    constraint uk_passport_number unique (passport_number),
+    constraint fk_passport_user foreign key (user_id) references users
+);
@@ -0,0 +1,11 @@
+-- Shard 0 of the sharded profile also holds what has to be unique over all shards (see UserShards). Safe to re-run.
+
+-- Ids for users and passports on every shard, handed out in blocks of 100
+create sequence if not exists global_id_seq start with 1 increment by 100;
+
+-- Who holds each passport number, each shard's passport_number constraint only sees its own passports
+create table if not exists passport_number_registry (
+    passport_number varchar(255) not null,
+    user_id bigint not null,
+    primary key (passport_number)
+);
@@ -0,0 +1,46 @@
+package com.dev.pranay.user_passport_bidirectional;
+
+import com.dev.pranay.user_passport_bidirectional.dtos.PassportDto;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDto;
+import com.dev.pranay.user_passport_bidirectional.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A database of its own: the other tests' contexts share the default one, already created by Hibernate.
+// The context only starts if ddl-auto=validate accepts the db/schema scripts for every entity.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:fast-startup")
+@ActiveProfiles("fast-startup")
+class FastStartupProfileTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void schemaComesFromTheVersionedScripts() {
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS"
+                + " WHERE CONSTRAINT_NAME = 'FK_PASSPORT_USER'", Integer.class));
+
+        PassportDto passportDto = new PassportDto();
+        passportDto.setPassportNumber("FS-1");
+        passportDto.setNationality("IN");
+        UserDto userDto = new UserDto();
+        userDto.setName("Mira");
+        userDto.setEmail("mira@example.com");
+        userDto.setPassportDto(passportDto);
+        userService.createUser(userDto);
+        List<UserDto> users = new ArrayList<>();
+        userService.streamAll(users::add);
+        assertTrue(users.stream().anyMatch(user -> "FS-1".equals(user.getPassportDto().getPassportNumber())));
+    }
+}
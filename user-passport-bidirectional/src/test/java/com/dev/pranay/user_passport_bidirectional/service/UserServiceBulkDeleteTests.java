@@ -0,0 +1,123 @@
+package com.dev.pranay.user_passport_bidirectional.service;
+
+import com.dev.pranay.user_passport_bidirectional.dtos.PassportDto;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDeleteRequest;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDeleteResultDto;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDto;
+import com.dev.pranay.user_passport_bidirectional.models.User;
+import com.dev.pranay.user_passport_bidirectional.repository.PassportRepository;
+import com.dev.pranay.user_passport_bidirectional.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A database of its own: deleting by creation date takes every older user with it, not just this test's
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:bulk-delete", "user.delete.chunk-size=2",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+class UserServiceBulkDeleteTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PassportRepository passportRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void deletesUsersAndTheirPassportsByIdInChunks() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(create("del-" + i, i % 2 == 0 ? "DEL-" + i : null));
+        }
+        userService.getUser(ids.get(0));
+        List<Long> toDelete = new ArrayList<>(ids.subList(0, 4));
+        toDelete.add(Long.MAX_VALUE);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        UserDeleteResultDto result = userService.deleteUsers(new UserDeleteRequest(toDelete, null));
+
+        // DELETE passport, DELETE users per chunk of two ids
+        assertEquals(3 * 2, statistics.getPrepareStatementCount());
+        assertEquals(4, result.getUsersDeleted());
+        assertEquals(2, result.getPassportsDeleted());
+        assertEquals(3, result.getChunks());
+        assertTrue(userRepository.findAllById(ids.subList(0, 4)).isEmpty());
+        assertNull(passportRepository.findByPassportNumber("DEL-0"));
+        assertNull(passportRepository.findByPassportNumber("DEL-2"));
+        assertNotNull(passportRepository.findByPassportNumber("DEL-4"));
+        // The cached DTO went with the row
+        assertThrows(RuntimeException.class, () -> userService.getUser(ids.get(0)));
+    }
+
+    @Test
+    void deletesUsersCreatedBeforeACutOff() throws InterruptedException {
+        List<Long> old = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            old.add(create("old-" + i, i == 0 ? "DEL-OLD" : null));
+        }
+        Thread.sleep(20);
+        LocalDateTime cutOff = LocalDateTime.now();
+        Thread.sleep(20);
+        Long recent = create("recent", "DEL-NEW");
+
+        UserDeleteResultDto result = userService.deleteUsers(new UserDeleteRequest(null, cutOff));
+
+        assertEquals(3, result.getUsersDeleted());
+        assertEquals(1, result.getPassportsDeleted());
+        assertEquals(2, result.getChunks());
+        assertTrue(userRepository.findAllById(old).isEmpty());
+        assertTrue(userRepository.existsById(recent));
+        assertNull(passportRepository.findByPassportNumber("DEL-OLD"));
+        assertNotNull(passportRepository.findByPassportNumber("DEL-NEW"));
+    }
+
+    @Test
+    void needsEitherIdsOrACutOff() {
+        assertThrows(IllegalArgumentException.class, () -> userService.deleteUsers(new UserDeleteRequest()));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.deleteUsers(new UserDeleteRequest(List.of(1L), LocalDateTime.now())));
+    }
+
+    private Long create(String name, String passportNumber) {
+        userService.createUser(userDto(name, passportNumber));
+        return userRepository.findAll().stream()
+                .filter(user -> name.equals(user.getName()))
+                .map(User::getId)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static UserDto userDto(String name, String passportNumber) {
+        UserDto userDto = new UserDto();
+        userDto.setName(name);
+        userDto.setEmail(name + "@example.com");
+        if (passportNumber != null) {
+            PassportDto passportDto = new PassportDto();
+            passportDto.setPassportNumber(passportNumber);
+            passportDto.setNationality("IN");
+            userDto.setPassportDto(passportDto);
+        }
+        return userDto;
+    }
+}
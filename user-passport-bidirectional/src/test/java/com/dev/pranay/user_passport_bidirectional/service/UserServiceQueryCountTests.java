@@ -0,0 +1,107 @@
+package com.dev.pranay.user_passport_bidirectional.service;
+
+import com.dev.pranay.user_passport_bidirectional.dtos.PassportDto;
+import com.dev.pranay.user_passport_bidirectional.dtos.SqlBudgetStatsDto;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDto;
+import com.dev.pranay.user_passport_bidirectional.metrics.SqlBudgetGuard;
+import com.dev.pranay.user_passport_bidirectional.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true", "user.read.page-size=4"})
+class UserServiceQueryCountTests {
+
+    private static final int USERS = 10;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SqlBudgetGuard sqlBudgetGuard;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        for (int i = 0; i < USERS; i++) {
+            userService.createUser(userDto("user-" + i, i % 2 == 0 ? "QC-" + i : null));
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void streamAllRunsOneStatementPerPage() {
+        List<UserDto> users = new ArrayList<>();
+        userService.streamAll(users::add);
+
+        assertEquals(USERS, users.size());
+        assertEquals(USERS / 2, users.stream().filter(u -> u.getPassportDto() != null).count());
+        // Pages of 4, 4 and 2 users
+        assertEquals(3, statistics.getPrepareStatementCount());
+        // One per page transaction, counted at the JDBC level by the @SqlBudget guard
+        assertEquals(1, budgetStatistics("streamAll(Consumer)").getMaxStatements());
+    }
+
+    @Test
+    void getUserLoadsUserAndPassportInOneStatement() {
+        Long id = userRepository.findAll().get(0).getId();
+        statistics.clear();
+
+        UserDto user = userService.getUser(id);
+
+        assertNotNull(user.getPassportDto());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void aTransactionOverItsBudgetFailsTheCall() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> sqlBudgetGuard.watch("nPlusOne()", 1,
+                () -> transactionTemplate.execute(status -> {
+                    userRepository.findAll().forEach(user -> userRepository.existsById(user.getId()));
+                    return null;
+                })));
+        assertTrue(e.getMessage().startsWith("nPlusOne() ran " + (1 + USERS)), e.getMessage());
+    }
+
+    private SqlBudgetStatsDto budgetStatistics(String method) {
+        return sqlBudgetGuard.getStatistics().stream()
+                .filter(stats -> stats.getMethod().equals(method))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static UserDto userDto(String name, String passportNumber) {
+        UserDto userDto = new UserDto();
+        userDto.setName(name);
+        userDto.setEmail(name + "@example.com");
+        if (passportNumber != null) {
+            PassportDto passportDto = new PassportDto();
+            passportDto.setPassportNumber(passportNumber);
+            passportDto.setNationality("IN");
+            userDto.setPassportDto(passportDto);
+        }
+        return userDto;
+    }
+}
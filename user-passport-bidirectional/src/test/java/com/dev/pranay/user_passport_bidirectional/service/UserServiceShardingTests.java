@@ -0,0 +1,161 @@
+package com.dev.pranay.user_passport_bidirectional.service;
+
+import com.dev.pranay.user_passport_bidirectional.dtos.PassportDto;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDto;
+import com.dev.pranay.user_passport_bidirectional.sharding.UserShards;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Three in-memory shards of their own. Each shard is also read directly, next to the application's pools.
+// Small read pages, so reading every user takes several pages per shard.
+@SpringBootTest(properties = {"user.sharding.urls=jdbc:h2:mem:sharding-test-0,jdbc:h2:mem:sharding-test-1,jdbc:h2:mem:sharding-test-2",
+        "user.read.page-size=4"})
+@ActiveProfiles("sharded")
+class UserServiceShardingTests {
+
+    private static final int SHARDS = 3;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserShards userShards;
+
+    @Test
+    void usersLiveOnTheShardOfTheirIdWithTheirPassport() {
+        List<UserDto> batch = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            batch.add(userDto("Shard " + i, "SHD-" + i));
+        }
+        userService.createUsers(batch);
+        userService.createUser(userDto("Shard single", "SHD-single"));
+
+        Set<Long> ids = new HashSet<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            List<Map<String, Object>> rows = query(shard, "SELECT u.id, p.user_id AS owner FROM users u "
+                    + "LEFT JOIN passport p ON p.user_id = u.id WHERE u.name LIKE 'Shard %'");
+            assertFalse(rows.isEmpty(), "no users on shard " + shard);
+            for (Map<String, Object> row : rows) {
+                Long id = (Long) row.get("ID");
+                assertEquals(shard, userShards.shardOf(id), "user " + id);
+                assertEquals(id, row.get("OWNER"), "passport of user " + id + " not on its shard");
+                assertTrue(ids.add(id), "id " + id + " on two shards");
+            }
+        }
+        assertEquals(31, ids.size());
+        assertEquals(31, allUsers().stream().filter(user -> user.getName().startsWith("Shard ")).count());
+        Long id = ids.iterator().next();
+        assertEquals(id, userIdOf(userService.getUser(id).getPassportDto().getPassportNumber()));
+    }
+
+    @Test
+    void everyUserIsReadInIdOrderAcrossTheShards() {
+        // Ids are handed out in creation order, so the merge by id gives the users back in that order
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            created.add("Merge " + i);
+            userService.createUser(userDto("Merge " + i, "MRG-" + i));
+        }
+
+        List<String> read = allUsers().stream()
+                .map(UserDto::getName)
+                .filter(name -> name.startsWith("Merge "))
+                .toList();
+        assertEquals(created, read);
+    }
+
+    @Test
+    void passportNumbersAreUniqueOverAllShards() {
+        userService.createUser(userDto("Unique A", "UNQ-1"));
+        Long holder = userIdOf("UNQ-1");
+        assertThrows(DataIntegrityViolationException.class, () -> userService.createUser(userDto("Unique B", "UNQ-1")));
+
+        // A user on another shard takes the number over, as PUT does on one database
+        Long other = null;
+        for (int i = 0; other == null || userShards.shardOf(other) == userShards.shardOf(holder); i++) {
+            userService.createUser(userDto("Unique C" + i, "UNQ-C" + i));
+            other = userIdOf("UNQ-C" + i);
+        }
+        userService.createOrUpdateUser(other, userDto("Unique C", "UNQ-1"));
+        assertEquals(other, userIdOf("UNQ-1"));
+        assertNull(userService.getUser(holder).getPassportDto());
+
+        // Deleting the user frees the number, the one they had before too
+        userService.deleteUser(other);
+        userService.createUser(userDto("Unique D", "UNQ-1"));
+        assertNotNull(userIdOf("UNQ-1"));
+    }
+
+    @Test
+    void failedUpdateLeavesThePassportWithItsHolder() {
+        userService.createUser(userDto("Kept A", "KPT-1"));
+        Long holder = userIdOf("KPT-1");
+        Long other = null;
+        for (int i = 0; other == null || userShards.shardOf(other) == userShards.shardOf(holder); i++) {
+            userService.createUser(userDto("Kept C" + i, "KPT-C" + i));
+            other = userIdOf("KPT-C" + i);
+        }
+
+        // Longer than users.name allows, so the upsert on the other user's shard fails
+        Long taker = other;
+        assertThrows(DataIntegrityViolationException.class,
+                () -> userService.createOrUpdateUser(taker, userDto("Kept " + "x".repeat(300), "KPT-1")));
+        assertEquals(holder, userIdOf("KPT-1"));
+        assertEquals("KPT-1", userService.getUser(holder).getPassportDto().getPassportNumber());
+        assertEquals(List.of(holder), query(0, "SELECT user_id FROM passport_number_registry WHERE passport_number = 'KPT-1'")
+                .stream().map(row -> row.get("USER_ID")).toList());
+        assertThrows(DataIntegrityViolationException.class, () -> userService.createUser(userDto("Kept B", "KPT-1")));
+    }
+
+    private List<UserDto> allUsers() {
+        List<UserDto> users = new ArrayList<>();
+        userService.streamAll(users::add);
+        return users;
+    }
+
+    // The user holding the passport, whichever shard it's on
+    private Long userIdOf(String passportNumber) {
+        Long owner = null;
+        for (int shard = 0; shard < SHARDS; shard++) {
+            List<Long> ids = new JdbcTemplate(shardDataSource(shard))
+                    .queryForList("SELECT user_id FROM passport WHERE passport_number = ?", Long.class, passportNumber);
+            if (!ids.isEmpty()) {
+                assertNull(owner, passportNumber + " on two shards");
+                owner = ids.get(0);
+            }
+        }
+        return owner;
+    }
+
+    private static List<Map<String, Object>> query(int shard, String sql) {
+        return new JdbcTemplate(shardDataSource(shard)).queryForList(sql);
+    }
+
+    private static DriverManagerDataSource shardDataSource(int shard) {
+        return new DriverManagerDataSource("jdbc:h2:mem:sharding-test-" + shard, "sa", "");
+    }
+
+    private static UserDto userDto(String name, String passportNumber) {
+        UserDto userDto = new UserDto();
+        userDto.setName(name);
+        userDto.setEmail(name.toLowerCase().replace(' ', '.') + "@example.com");
+        PassportDto passportDto = new PassportDto();
+        passportDto.setPassportNumber(passportNumber);
+        passportDto.setNationality("IN");
+        userDto.setPassportDto(passportDto);
+        return userDto;
+    }
+}
@@ -0,0 +1,140 @@
+package com.dev.pranay.user_passport_bidirectional.service;
+
+import com.dev.pranay.user_passport_bidirectional.dtos.PassportDto;
+import com.dev.pranay.user_passport_bidirectional.dtos.UserDto;
+import com.dev.pranay.user_passport_bidirectional.models.User;
+import com.dev.pranay.user_passport_bidirectional.repository.PassportRepository;
+import com.dev.pranay.user_passport_bidirectional.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UserServiceUpsertTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PassportRepository passportRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void newPassportNumberReplacesTheUsersPassport() {
+        Long id = create("Sana", "UPB-1");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        UserDto updated = userService.createOrUpdateUser(id, userDto("Sana K", "UPB-2", "FR"));
+
+        // UPDATE users, DELETE the old passport, MERGE the new one (plus a sequence call now and then)
+        assertTrue(statistics.getPrepareStatementCount() <= 4, () -> statistics.getPrepareStatementCount() + " statements");
+        assertEquals("UPB-2", updated.getPassportDto().getPassportNumber());
+        UserDto reloaded = userService.getUser(id);
+        assertEquals("Sana K", reloaded.getName());
+        assertEquals("UPB-2", reloaded.getPassportDto().getPassportNumber());
+        assertEquals("FR", reloaded.getPassportDto().getNationality());
+        assertNull(passportRepository.findByPassportNumber("UPB-1"));
+        assertNotNull(passportRepository.findByPassportNumber("UPB-2").getExpiryDate());
+    }
+
+    @Test
+    void existingPassportMovesFromItsPreviousOwner() {
+        Long from = create("Tom", "UPB-3");
+        Long to = create("Uma", null);
+        // Both cached before the move
+        assertNotNull(userService.getUser(from).getPassportDto());
+        assertNull(userService.getUser(to).getPassportDto());
+
+        userService.createOrUpdateUser(to, userDto("Uma", "UPB-3", "DE"));
+
+        assertEquals("DE", userService.getUser(to).getPassportDto().getNationality());
+        assertNull(userService.getUser(from).getPassportDto());
+    }
+
+    @Test
+    void unknownIdStillCreatesAUser() {
+        long before = userRepository.count();
+        UserDto created = userService.createOrUpdateUser(Long.MAX_VALUE, userDto("Vik", "UPB-4", "IN"));
+
+        assertEquals("UPB-4", created.getPassportDto().getPassportNumber());
+        assertEquals(before + 1, userRepository.count());
+    }
+
+    @Test
+    void concurrentUpdatesToTheSamePassportNumberAllComplete() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(create("Wes" + i, null));
+        }
+        // Each thread first inserts or takes over UPB-5, the losers retry after the unique constraint or version check
+        ExecutorService executor = Executors.newFixedThreadPool(ids.size());
+        try {
+            List<Future<UserDto>> futures = new ArrayList<>();
+            for (Long id : ids) {
+                futures.add(executor.submit(() -> userService.createOrUpdateUser(id, userDto("Wes", "UPB-5", "IN"))));
+            }
+            for (Future<UserDto> future : futures) {
+                assertEquals("UPB-5", future.get().getPassportDto().getPassportNumber());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, passportRepository.findAll().stream()
+                .filter(passport -> "UPB-5".equals(passport.getPassportNumber()))
+                .count());
+        assertTrue(ids.contains(passportRepository.findByPassportNumber("UPB-5").getUser().getId()));
+    }
+
+    @Test
+    void otherIntegrityViolationsAreNotRetried() {
+        Long id = create("Xan", "UPB-6");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Longer than users.name allows, so the first UPDATE fails and would fail the same on every attempt
+        assertThrows(DataIntegrityViolationException.class,
+                () -> userService.createOrUpdateUser(id, userDto("Xan " + "x".repeat(300), "UPB-6", "IN")));
+        assertEquals(1, statistics.getPrepareStatementCount(), "the failing UPDATE ran more than once");
+    }
+
+    private Long create(String name, String passportNumber) {
+        userService.createUser(userDto(name, passportNumber, "IN"));
+        return userRepository.findAll().stream()
+                .filter(user -> name.equals(user.getName()))
+                .map(User::getId)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static UserDto userDto(String name, String passportNumber, String nationality) {
+        UserDto userDto = new UserDto();
+        userDto.setName(name);
+        userDto.setEmail(name.toLowerCase().replace(' ', '.') + "@example.com");
+        if (passportNumber != null) {
+            PassportDto passportDto = new PassportDto();
+            passportDto.setPassportNumber(passportNumber);
+            passportDto.setNationality(nationality);
+            userDto.setPassportDto(passportDto);
+        }
+        return userDto;
+    }
+}
@@ -0,0 +1,39 @@
+package com.dev.pranay.user_passport_demo.config;
+
+import com.dev.pranay.user_passport_demo.metrics.StatementCountingDataSource;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.HibernateMetrics;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// HTTP latency (http.server.requests) and Hikari pool waits (hikaricp.connections.acquire) come from
+// Spring Boot's auto-configuration; this adds the Hibernate session statistics and the SQL statement counter.
+@Configuration
+public class MetricsConfig {
+
+    // Wraps the pool so every statement executed through it is counted, whoever runs it (Hibernate, JdbcTemplate).
+    // Static: a BeanPostProcessor has to exist before the DataSource it processes.
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof StatementCountingDataSource)
+                        ? new StatementCountingDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    // Boot 3 dropped its own Hibernate meters, hibernate-micrometer provides them instead
+    @Bean
+    public MeterBinder hibernateMetrics(EntityManagerFactory entityManagerFactory) {
+        return new HibernateMetrics(entityManagerFactory.unwrap(SessionFactory.class), "entityManagerFactory", Tags.empty());
+    }
+}
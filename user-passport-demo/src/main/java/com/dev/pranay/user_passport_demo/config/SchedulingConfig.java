@@ -0,0 +1,10 @@
+package com.dev.pranay.user_passport_demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Scheduled jobs (PassportExpiryScanService) run on Spring Boot's task scheduler thread, not on request threads
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
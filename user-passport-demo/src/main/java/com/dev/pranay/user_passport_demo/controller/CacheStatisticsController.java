@@ -0,0 +1,27 @@
+package com.dev.pranay.user_passport_demo.controller;
+
+import com.dev.pranay.user_passport_demo.dtos.CacheRegionStatsDto;
+import com.dev.pranay.user_passport_demo.service.CacheStatisticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/cache")
+@RequiredArgsConstructor
+public class CacheStatisticsController {
+
+    private final CacheStatisticsService cacheStatisticsService;
+
+    // Empty list when the app runs without the "cache" profile
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheRegionStatsDto>> getStatistics() {
+        List<CacheRegionStatsDto> statistics = cacheStatisticsService.getRegionStatistics();
+        return new ResponseEntity<>(statistics, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,23 @@
+package com.dev.pranay.user_passport_demo.controller;
+
+import com.dev.pranay.user_passport_demo.dtos.ExportResultDto;
+import com.dev.pranay.user_passport_demo.service.UserExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final UserExportService userExportService;
+
+    // Writes the files into user.export.directory and returns their names and sizes, not the data itself
+    @PostMapping
+    public ResponseEntity<ExportResultDto> exportUsers(@RequestParam(defaultValue = "4") int partitions) {
+        ExportResultDto result = userExportService.exportAll(partitions);
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+}
@@ -0,0 +1,36 @@
+package com.dev.pranay.user_passport_demo.controller;
+
+import com.dev.pranay.user_passport_demo.dtos.ImportJobDto;
+import com.dev.pranay.user_passport_demo.service.UserImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/import")
+@RequiredArgsConstructor
+public class ImportController {
+
+    private final UserImportService userImportService;
+
+    // file is a name inside user.import.directory; the import runs in the background, poll GET /{id} for progress
+    @PostMapping
+    public ResponseEntity<ImportJobDto> startImport(@RequestParam String file) {
+        ImportJobDto job = userImportService.createJob(file);
+        userImportService.startInBackground(job.getId());
+        return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+    }
+
+    // Continues a failed or interrupted job after its last committed chunk
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<ImportJobDto> resumeImport(@PathVariable Long id) {
+        userImportService.startInBackground(id);
+        return new ResponseEntity<>(userImportService.getJob(id), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJobDto> getImport(@PathVariable Long id) {
+        return new ResponseEntity<>(userImportService.getJob(id), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,42 @@
+package com.dev.pranay.user_passport_demo.controller;
+
+import com.dev.pranay.user_passport_demo.dtos.ExpiringPassportDto;
+import com.dev.pranay.user_passport_demo.dtos.ExpiryScanRunDto;
+import com.dev.pranay.user_passport_demo.service.PassportExpiryScanService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/passport/expiring")
+@RequiredArgsConstructor
+public class PassportExpiryController {
+
+    private final PassportExpiryScanService passportExpiryScanService;
+
+    // From the summary table of the latest completed scan. Next page: afterExpiry/afterId of the last row
+    @GetMapping
+    public ResponseEntity<List<ExpiringPassportDto>> getExpiringPassports(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterExpiry,
+            @RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = "500") int size) {
+        List<ExpiringPassportDto> page = passportExpiryScanService.getExpiringPassports(afterExpiry, afterId, size);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    @GetMapping("/run")
+    public ResponseEntity<ExpiryScanRunDto> getLatestRun() {
+        return new ResponseEntity<>(passportExpiryScanService.getLatestRun(), HttpStatus.OK);
+    }
+
+    // Starts a scan now instead of waiting for the schedule; poll GET /run for progress
+    @PostMapping("/scan")
+    public ResponseEntity<ExpiryScanRunDto> startScan() {
+        return new ResponseEntity<>(passportExpiryScanService.startInBackground(), HttpStatus.ACCEPTED);
+    }
+}
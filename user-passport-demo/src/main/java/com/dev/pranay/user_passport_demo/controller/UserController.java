@@ -1,13 +1,32 @@
 package com.dev.pranay.user_passport_demo.controller;
 
+import com.dev.pranay.user_passport_demo.dtos.UserDeleteRequest;
+import com.dev.pranay.user_passport_demo.dtos.StampedUser;
+import com.dev.pranay.user_passport_demo.dtos.UserDeleteResultDto;
 import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.dtos.UserStamp;
 import com.dev.pranay.user_passport_demo.service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/user")
@@ -15,6 +34,7 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<UserDto> createUser(@RequestBody UserDto userDto) {
@@ -22,24 +42,38 @@ public class UserController {
         return new ResponseEntity<>(user, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserDto>> createUsers(@RequestBody List<UserDto> userDtos) {
+        List<UserDto> users = userService.createUsers(userDtos);
+        return new ResponseEntity<>(users, HttpStatus.CREATED);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<UserDto> getUserById(@PathVariable Long id) {
-        UserDto user = userService.getUserById(id);
-        return new ResponseEntity<>(user, HttpStatus.OK);
+    public ResponseEntity<UserDto> getUserById(@PathVariable Long id, WebRequest request) {
+        StampedUser user = userService.getStampedUserById(id);
+        return conditional(request, user.stamp(), HttpStatus.OK, user::user);
     }
 
     @GetMapping("/all")
-    public ResponseEntity<List<UserDto>> getAll() {
-        List<UserDto> allUsers = userService.getAllUsers();
-        return new ResponseEntity<>(allUsers, HttpStatus.OK);
+    public ResponseEntity<StreamingResponseBody> getAll(WebRequest request) {
+        return conditionalOnAll(request, out -> writeJsonArray(out, userService::streamAllUsers));
     }
 
+    // With If-Match (the ETag from GET /{id}) only the version it was read at is replaced, otherwise 412
     @PutMapping("/{id}")
-    public ResponseEntity<UserDto> updateUser(@PathVariable Long id, @RequestBody UserDto userDto) {
-        UserDto updatedUser = userService.createOrUpdateUser(id, userDto);
+    public ResponseEntity<UserDto> updateUser(@PathVariable Long id, @RequestBody UserDto userDto,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UserDto updatedUser = userService.createOrUpdateUser(id, userDto, ifMatch);
         return new ResponseEntity<>(updatedUser, HttpStatus.OK);
     }
 
+    // Only the fields present in the body change, see UserService.patchUser
+    @PatchMapping("/{id}")
+    public ResponseEntity<UserDto> patchUser(@PathVariable Long id, @RequestBody UserDto userDto) {
+        UserDto patchedUser = userService.patchUser(id, userDto);
+        return new ResponseEntity<>(patchedUser, HttpStatus.OK);
+    }
+
     @PutMapping()
     public ResponseEntity<UserDto> updateUser(@RequestBody UserDto userDto) {
         UserDto updatedUser = userService.createOrUpdateUser(userDto);
@@ -52,15 +86,144 @@ public class UserController {
         return ResponseEntity.noContent().build();
     }
 
+    // Bulk delete by {"ids": [...]} or {"createdBefore": "..."}
+    @DeleteMapping
+    public ResponseEntity<UserDeleteResultDto> deleteUsers(@RequestBody UserDeleteRequest request) {
+        UserDeleteResultDto result = userService.deleteUsers(request);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
     @GetMapping("/fetch/{id}")
-    public ResponseEntity<UserDto> fetchUserWithPassport(@PathVariable Long id) {
-        UserDto userDto = userService.fetchUserWithPassport(id);
-        return new ResponseEntity<>(userDto, HttpStatus.FOUND);
+    public ResponseEntity<UserDto> fetchUserWithPassport(@PathVariable Long id, WebRequest request) {
+        StampedUser user = userService.fetchStampedUserWithPassport(id);
+        if (user == null) {
+            return new ResponseEntity<>(null, HttpStatus.FOUND);
+        }
+        return conditional(request, user.stamp(), HttpStatus.FOUND, user::user);
     }
 
     @GetMapping("/fetchAll")
-    public ResponseEntity<List<UserDto>> findAllUsersWithPassports() {
-        List<UserDto> allUsersWithPassports = userService.findAllUsersWithPassports();
-        return new ResponseEntity<>(allUsersWithPassports, HttpStatus.OK);
+    public ResponseEntity<StreamingResponseBody> findAllUsersWithPassports(WebRequest request) {
+        return conditionalOnAll(request, out -> writeJsonArray(out, userService::streamAllUsersWithPassports));
+    }
+
+    @GetMapping("/all/page")
+    public ResponseEntity<List<UserDto>> getAllPage(@RequestParam(defaultValue = "0") Long afterId,
+                                                    @RequestParam(defaultValue = "500") int size,
+                                                    WebRequest request) {
+        return conditionalOnRows(request, userService.getUsersPage(afterId, size));
+    }
+
+    @GetMapping("/fetchAll/page")
+    public ResponseEntity<List<UserDto>> findAllUsersWithPassportsPage(@RequestParam(defaultValue = "0") Long afterId,
+                                                                       @RequestParam(defaultValue = "500") int size,
+                                                                       WebRequest request) {
+        return conditionalOnRows(request, userService.getUsersWithPassportsPage(afterId, size));
+    }
+
+    // Filters combine with AND, any of them may be left out; paged by id like /all/page
+    @GetMapping("/search")
+    public ResponseEntity<List<UserDto>> searchUsers(@RequestParam(required = false) String nationality,
+                                                     @RequestParam(required = false) String namePrefix,
+                                                     @RequestParam(required = false) String email,
+                                                     @RequestParam(defaultValue = "0") Long afterId,
+                                                     @RequestParam(defaultValue = "500") int size,
+                                                     WebRequest request) {
+        return conditionalOnRows(request, userService.searchUsers(nationality, namePrefix, email, afterId, size));
+    }
+
+    @GetMapping(value = "/all/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        StreamingResponseBody body = out -> writeNdjson(out, userService::streamAllUsers);
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/fetchAll/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsersWithPassports() {
+        StreamingResponseBody body = out -> writeNdjson(out, userService::streamAllUsersWithPassports);
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    // ETag/Last-Modified from the stamp. checkNotModified answers a matching If-None-Match (or If-Modified-Since)
+    // with 304 and the body is never written; otherwise the body goes out with the same validators.
+    private <T> ResponseEntity<T> conditional(WebRequest request, UserStamp stamp, HttpStatus status, Supplier<T> body) {
+        if (request.checkNotModified(stamp.eTag(), stamp.lastModifiedMillis())) {
+            return null;
+        }
+        T value = body.get();
+        // A StreamingResponseBody carries no type information for content negotiation
+        if (value instanceof StreamingResponseBody) {
+            return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(value);
+        }
+        return new ResponseEntity<>(value, status);
+    }
+
+    // The whole collection's stamp is an aggregate over every user, as much work as the response itself, so it only
+    // runs when the request is conditional. A client without an ETag yet can send If-Modified-Since with the time of
+    // its last fetch and gets the validators back with the body.
+    private ResponseEntity<StreamingResponseBody> conditionalOnAll(WebRequest request, StreamingResponseBody body) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) == null && request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) == null) {
+            return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).body(body);
+        }
+        return conditional(request, userService.getAllUsersStamp(), HttpStatus.OK, () -> body);
+    }
+
+    // Pages and search results: the ETag is a digest of the rows returned, so it costs no query beyond the page's
+    // own, and a change to a user on another page leaves this one's ETag alone. A 304 saves the transfer.
+    private ResponseEntity<List<UserDto>> conditionalOnRows(WebRequest request, List<UserDto> rows) {
+        if (request.checkNotModified(rowsETag(rows))) {
+            return null;
+        }
+        return new ResponseEntity<>(rows, HttpStatus.OK);
+    }
+
+    private String rowsETag(List<UserDto> rows) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(rows)) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not compute the ETag of " + rows.size() + " users", e);
+        }
+    }
+
+    // The same JSON array the List<UserDto> responses produced, written element by element as the rows come off
+    // the cursor, so the response never exists as a DTO list or a byte[] in memory. An error part way through
+    // can only cut the array short, the status has been sent by then.
+    private void writeJsonArray(OutputStream out, Consumer<Consumer<UserDto>> source) throws IOException {
+        ObjectWriter rowWriter = rowWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            source.accept(userDto -> {
+                try {
+                    rowWriter.writeValue(generator, userDto);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    // One JSON document per line, written straight to the response as the rows come off the cursor
+    private void writeNdjson(OutputStream out, Consumer<Consumer<UserDto>> source) throws IOException {
+        ObjectWriter rowWriter = rowWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            source.accept(userDto -> {
+                try {
+                    rowWriter.writeValue(generator, userDto);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    // FLUSH_AFTER_WRITE_VALUE (on by default) would flush the generator and the response after every row, one
+    // tiny chunk per user; without it the generator's buffer batches the rows and flushes once it is full
+    private ObjectWriter rowWriter() {
+        return objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 }
@@ -0,0 +1,21 @@
+package com.dev.pranay.user_passport_demo.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpiringPassportDto {
+
+    private Long passportId;
+    private String passportNumber;
+    private String nationality;
+    private LocalDateTime expiryDate;
+    private Long userId;
+    private String userName;
+    private String userEmail;
+}
@@ -0,0 +1,25 @@
+package com.dev.pranay.user_passport_demo.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpiryScanRunDto {
+
+    private Long id;
+    // RUNNING, FAILED or COMPLETED
+    private String status;
+    private LocalDateTime windowStart;
+    private LocalDateTime windowEnd;
+    private long passportsFound;
+    private int chunks;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long millis;
+    private String failureMessage;
+}
@@ -0,0 +1,18 @@
+package com.dev.pranay.user_passport_demo.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExportFileDto {
+
+    private String file;
+    // users.id range of this partition, toId exclusive
+    private long fromId;
+    private long toId;
+    private long rows;
+    private long bytes;
+}
@@ -0,0 +1,19 @@
+package com.dev.pranay.user_passport_demo.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExportResultDto {
+
+    private String exportName;
+    private List<ExportFileDto> files;
+    private long totalRows;
+    private long totalBytes;
+    private long millis;
+}
@@ -0,0 +1,27 @@
+package com.dev.pranay.user_passport_demo.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportJobDto {
+
+    private Long id;
+    private String fileName;
+    private String status;
+    private long linesCommitted;
+    private long importedCount;
+    private long rejectedCount;
+    // Lines per second since the job was (last) started
+    private double linesPerSecond;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String failureMessage;
+    private List<String> errors;
+}
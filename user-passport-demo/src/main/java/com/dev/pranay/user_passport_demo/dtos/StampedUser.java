@@ -0,0 +1,15 @@
+package com.dev.pranay.user_passport_demo.dtos;
+
+import java.time.LocalDateTime;
+
+// A user together with the validators of the row it was read from, so a conditional GET can be answered from
+// whatever copy is at hand (the DTO cache, a loaded entity) without a second query for the stamp.
+public record StampedUser(UserDto user, UserStamp stamp) {
+
+    // Target of the JPQL constructor expression in UserRepository.findStampedUserById
+    public StampedUser(Long id, String name, String email, Long passportId, String passportNumber, String nationality,
+                       Long version, Long passportVersion, LocalDateTime modifiedAt) {
+        this(new UserDto(id, name, email, passportId, passportNumber, nationality),
+                new UserStamp(id, id, version, passportVersion, modifiedAt));
+    }
+}
@@ -0,0 +1,11 @@
+package com.dev.pranay.user_passport_demo.dtos;
+
+// Passport columns read back by the native upsert statements in UserRepository (interface projection)
+public interface UpsertedPassport {
+
+    Long getPassportId();
+
+    String getPassportNumber();
+
+    String getNationality();
+}
@@ -13,4 +13,10 @@ public class UserDto {
     private String name;
     private String email;
     private PassportDto passportDto;
+
+    // Target of the JPQL constructor expressions in UserRepository: one flat row from users LEFT JOIN passport,
+    // so the read paths build DTOs straight from the result set without managed entities or snapshots.
+    public UserDto(Long id, String name, String email, Long passportId, String passportNumber, String nationality) {
+        this(id, name, email, passportId == null ? null : new PassportDto(passportId, passportNumber, nationality));
+    }
 }
@@ -0,0 +1,20 @@
+package com.dev.pranay.user_passport_demo.dtos;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One CSV line of an import file: name,email,passportNumber,nationality (header row required).
+// NDJSON imports use the UserDto shape of the REST API instead.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonPropertyOrder({"name", "email", "passportNumber", "nationality"})
+public class UserImportRow {
+
+    private String name;
+    private String email;
+    private String passportNumber;
+    private String nationality;
+}
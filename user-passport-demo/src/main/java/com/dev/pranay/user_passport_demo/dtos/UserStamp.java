@@ -0,0 +1,33 @@
+package com.dev.pranay.user_passport_demo.dtos;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+// Validators for conditional GETs, read by UserRepository without loading or mapping any user.
+// One user: key and highestId are the id, the versions are the user's and its passport's, modifiedAt is
+// users.modified_at.
+// A collection: key is the row count, highestId the largest id, the versions are summed and modifiedAt is the
+// latest one. Count and sums alone miss a delete followed by an insert of a user with the same version; the
+// new row's id and modified_at do not.
+public record UserStamp(Long key, Long highestId, Long version, Long passportVersion, LocalDateTime modifiedAt) {
+
+    public String eTag() {
+        return "\"" + key + "-" + orZero(highestId) + "-" + orZero(version) + "-" + orZero(passportVersion)
+                + "-" + modifiedMicros() + "\"";
+    }
+
+    // -1 when there is nothing to compare against, which makes Spring skip the If-Modified-Since check
+    public long lastModifiedMillis() {
+        return modifiedAt == null ? -1 : modifiedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Full column precision, Last-Modified only carries whole seconds
+    private long modifiedMicros() {
+        return modifiedAt == null ? 0 : modifiedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + modifiedAt.getNano() / 1_000;
+    }
+
+    private static long orZero(Long value) {
+        return value == null ? 0 : value;
+    }
+}
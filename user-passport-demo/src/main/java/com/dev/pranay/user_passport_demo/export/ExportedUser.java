@@ -0,0 +1,9 @@
+package com.dev.pranay.user_passport_demo.export;
+
+import java.time.LocalDateTime;
+
+// One row read back from an export file; the passport fields are null for users without one
+public record ExportedUser(long id, String name, String email, LocalDateTime createdAt, LocalDateTime modifiedAt,
+                           Long passportId, String passportNumber, String nationality,
+                           LocalDateTime issueDate, LocalDateTime expiryDate) {
+}
@@ -0,0 +1,52 @@
+package com.dev.pranay.user_passport_demo.export;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/*
+ Binary layout of a user export file (all numbers big-endian):
+
+   header   int magic "UPX1", short version
+   row      byte ROW, then
+              long   user id
+              string name, string email
+              ts     createdAt, ts modifiedAt
+              long   passport id (NO_PASSPORT when the user has none, then no passport fields follow)
+              string passportNumber, string nationality
+              ts     issueDate, ts expiryDate
+   trailer  byte END, long row count
+
+   string = short byte length (-1 for null) + UTF-8 bytes; ts = long epoch micros UTC (NULL_TIMESTAMP for null)
+
+ The trailer lets the reader tell a complete file from one cut short by a failed export.
+*/
+public final class UserExportFormat {
+
+    public static final int MAGIC = 0x55505831;
+    public static final short VERSION = 1;
+    public static final byte ROW = 1;
+    public static final byte END = 0;
+    public static final long NO_PASSPORT = -1L;
+    public static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+    public static final String FILE_EXTENSION = ".upx";
+    // A buffer has to hold the longest possible string in one piece
+    public static final int MIN_BUFFER_SIZE = Short.BYTES + Short.MAX_VALUE;
+
+    private UserExportFormat() {
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return NULL_TIMESTAMP;
+        }
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        if (micros == NULL_TIMESTAMP) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,114 @@
+package com.dev.pranay.user_passport_demo.export;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads an export file back one row at a time through a fixed-size buffer
+public class UserExportReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long rows;
+    private boolean finished;
+
+    public UserExportReader(Path file, int bufferSize) throws IOException {
+        if (bufferSize < UserExportFormat.MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer must be at least " + UserExportFormat.MIN_BUFFER_SIZE + " bytes: " + bufferSize);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.flip();
+        require(Integer.BYTES + Short.BYTES);
+        int magic = buffer.getInt();
+        short version = buffer.getShort();
+        if (magic != UserExportFormat.MAGIC || version != UserExportFormat.VERSION) {
+            throw new IOException("Not a user export file (version " + UserExportFormat.VERSION + "): " + file);
+        }
+    }
+
+    // Next row, or null once the trailer has been read and checked
+    public ExportedUser next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        require(1);
+        byte marker = buffer.get();
+        if (marker == UserExportFormat.END) {
+            require(Long.BYTES);
+            long expected = buffer.getLong();
+            if (expected != rows) {
+                throw new IOException("Export trailer says " + expected + " rows but " + rows + " were read");
+            }
+            finished = true;
+            return null;
+        }
+        if (marker != UserExportFormat.ROW) {
+            throw new IOException("Corrupt export file, unexpected marker " + marker + " after row " + rows);
+        }
+
+        require(Long.BYTES);
+        long id = buffer.getLong();
+        String name = getString();
+        String email = getString();
+        long createdAt = getLong();
+        long modifiedAt = getLong();
+        long passportId = getLong();
+
+        ExportedUser user;
+        if (passportId == UserExportFormat.NO_PASSPORT) {
+            user = new ExportedUser(id, name, email, UserExportFormat.fromMicros(createdAt),
+                    UserExportFormat.fromMicros(modifiedAt), null, null, null, null, null);
+        } else {
+            String passportNumber = getString();
+            String nationality = getString();
+            long issueDate = getLong();
+            long expiryDate = getLong();
+            user = new ExportedUser(id, name, email, UserExportFormat.fromMicros(createdAt),
+                    UserExportFormat.fromMicros(modifiedAt), passportId, passportNumber, nationality,
+                    UserExportFormat.fromMicros(issueDate), UserExportFormat.fromMicros(expiryDate));
+        }
+        rows++;
+        return user;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long getLong() throws IOException {
+        require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    private String getString() throws IOException {
+        require(Short.BYTES);
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        require(length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Makes sure the next `bytes` bytes are in the buffer, reading more from the channel if needed
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Export file ends in the middle of a row, it was probably cut short");
+            }
+        }
+        buffer.flip();
+    }
+}
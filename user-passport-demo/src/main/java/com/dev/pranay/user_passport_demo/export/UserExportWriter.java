@@ -0,0 +1,111 @@
+package com.dev.pranay.user_passport_demo.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+import static java.nio.file.StandardOpenOption.*;
+
+// Encodes rows straight from the JDBC cursor into a direct buffer and hands the buffer to the FileChannel
+// whenever it fills up, so the only rows in memory are the ones in that buffer. Not thread safe, one per file.
+public class UserExportWriter implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long rows;
+
+    public UserExportWriter(Path file, int bufferSize) throws IOException {
+        if (bufferSize < UserExportFormat.MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer must be at least " + UserExportFormat.MIN_BUFFER_SIZE + " bytes: " + bufferSize);
+        }
+        this.channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.putInt(UserExportFormat.MAGIC).putShort(UserExportFormat.VERSION);
+    }
+
+    // Expects the columns of UserExportService's SELECT, in that order
+    public void write(ResultSet row) throws SQLException, IOException {
+        ensure(1 + Long.BYTES);
+        buffer.put(UserExportFormat.ROW);
+        buffer.putLong(row.getLong(1));
+        putString(row.getString(2));
+        putString(row.getString(3));
+        putTimestamp(row.getObject(4, LocalDateTime.class));
+        putTimestamp(row.getObject(5, LocalDateTime.class));
+
+        long passportId = row.getLong(6);
+        if (row.wasNull()) {
+            ensure(Long.BYTES);
+            buffer.putLong(UserExportFormat.NO_PASSPORT);
+        } else {
+            ensure(Long.BYTES);
+            buffer.putLong(passportId);
+            putString(row.getString(7));
+            putString(row.getString(8));
+            putTimestamp(row.getObject(9, LocalDateTime.class));
+            putTimestamp(row.getObject(10, LocalDateTime.class));
+        }
+        rows++;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    // Writes the END trailer with the row count and syncs the file. Only call this once every row made it in:
+    // a file without the trailer is how a reader tells an aborted export from a complete one.
+    public void finish() throws IOException {
+        try {
+            ensure(1 + Long.BYTES);
+            buffer.put(UserExportFormat.END).putLong(rows);
+            drain();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    // Releases the file without a trailer if finish() was never reached
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void putString(String value) throws IOException {
+        if (value == null) {
+            ensure(Short.BYTES);
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value too long for the export format: " + bytes.length + " bytes");
+        }
+        ensure(Short.BYTES + bytes.length);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private void putTimestamp(LocalDateTime timestamp) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(UserExportFormat.toMicros(timestamp));
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,73 @@
+package com.dev.pranay.user_passport_demo.json;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+// Hand-written serializers for the DTOs the collection endpoints write once per row. Jackson's BeanSerializer
+// reaches the getters through introspected property writers; these call them directly, with the field names
+// encoded once. Same fields, order and null handling as the default output (UserDtoJsonComponentTests checks).
+// Only serialization is replaced, request bodies are still read by the default deserializers.
+@JsonComponent
+public class UserDtoJsonComponent {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString PASSPORT_DTO = new SerializedString("passportDto");
+    private static final SerializedString PASSPORT_NUMBER = new SerializedString("passportNumber");
+    private static final SerializedString NATIONALITY = new SerializedString("nationality");
+
+    public static class UserDtoSerializer extends JsonSerializer<UserDto> {
+
+        @Override
+        public void serialize(UserDto user, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(user);
+            writeId(generator, user.getId());
+            generator.writeFieldName(NAME);
+            generator.writeString(user.getName());
+            generator.writeFieldName(EMAIL);
+            generator.writeString(user.getEmail());
+            generator.writeFieldName(PASSPORT_DTO);
+            if (user.getPassportDto() == null) {
+                generator.writeNull();
+            } else {
+                writePassport(generator, user.getPassportDto());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    public static class PassportDtoSerializer extends JsonSerializer<PassportDto> {
+
+        @Override
+        public void serialize(PassportDto passport, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            writePassport(generator, passport);
+        }
+    }
+
+    private static void writePassport(JsonGenerator generator, PassportDto passport) throws IOException {
+        generator.writeStartObject(passport);
+        writeId(generator, passport.getId());
+        generator.writeFieldName(PASSPORT_NUMBER);
+        generator.writeString(passport.getPassportNumber());
+        generator.writeFieldName(NATIONALITY);
+        generator.writeString(passport.getNationality());
+        generator.writeEndObject();
+    }
+
+    private static void writeId(JsonGenerator generator, Long id) throws IOException {
+        generator.writeFieldName(ID);
+        if (id == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(id);
+        }
+    }
+}
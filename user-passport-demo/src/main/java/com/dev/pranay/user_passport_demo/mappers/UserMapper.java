@@ -0,0 +1,32 @@
+package com.dev.pranay.user_passport_demo.mappers;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.models.Passport;
+import com.dev.pranay.user_passport_demo.models.User;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+
+// MapStruct generates UserMapperImpl at compile time: plain getter/setter calls, no reflection or
+// property matching at runtime (which is what ModelMapper did on every request).
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface UserMapper {
+
+    @Mapping(target = "passportDto", source = "passport")
+    UserDto toDto(User user);
+
+    PassportDto toDto(Passport passport);
+
+    @Mapping(target = "passport", source = "passportDto")
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "modifiedAt", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    User toEntity(UserDto userDto);
+
+    // issueDate/expiryDate are filled in by Passport.prePersist
+    @Mapping(target = "issueDate", ignore = true)
+    @Mapping(target = "expiryDate", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    Passport toEntity(PassportDto passportDto);
+}
@@ -0,0 +1,54 @@
+package com.dev.pranay.user_passport_demo.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+// Records how many SQL statements each public UserService method ran, as user.service.sql.statements{method=...},
+// and hands @SqlBudget methods to SqlBudgetGuard. Highest precedence so it wraps the @Transactional proxy and also
+// sees the statements flushed on commit.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class UserServiceMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final SqlBudgetGuard sqlBudgetGuard;
+
+    @Around("execution(public * com.dev.pranay.user_passport_demo.service.UserService.*(..))")
+    public Object countStatements(ProceedingJoinPoint joinPoint) throws Throwable {
+        long before = SqlStatementCounter.currentCount();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        SqlBudget budget = method.getAnnotation(SqlBudget.class);
+        try {
+            return budget == null
+                    ? joinPoint.proceed()
+                    : sqlBudgetGuard.watch(signature(method), budget.value(), joinPoint::proceed);
+        } finally {
+            DistributionSummary.builder("user.service.sql.statements")
+                    .description("SQL statements per UserService call")
+                    .tag("method", joinPoint.getSignature().getName())
+                    .register(meterRegistry)
+                    .record(SqlStatementCounter.currentCount() - before);
+        }
+    }
+
+    // Parameter types too, the createOrUpdateUser overloads have different budgets
+    private static String signature(Method method) {
+        return Arrays.stream(method.getParameterTypes())
+                .map(Class::getSimpleName)
+                .collect(Collectors.joining(",", method.getName() + "(", ")"));
+    }
+}
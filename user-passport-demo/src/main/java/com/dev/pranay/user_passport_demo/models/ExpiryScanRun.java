@@ -0,0 +1,37 @@
+package com.dev.pranay.user_passport_demo.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One run of the passport expiry scan: the window it looked at, how long it took and how much it found.
+// Updated in the same transaction as each chunk of PassportExpiry rows.
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExpiryScanRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expiry_scan_run_seq")
+    @SequenceGenerator(name = "expiry_scan_run_seq", sequenceName = "expiry_scan_run_seq", allocationSize = 1)
+    private Long id;
+
+    // Passports expiring in [windowStart, windowEnd)
+    private LocalDateTime windowStart;
+    private LocalDateTime windowEnd;
+
+    private long passportsFound;
+    private int chunks;
+
+    private LocalDateTime startedAt;
+    // null while the run is in progress
+    private LocalDateTime finishedAt;
+    private long millis;
+
+    @Column(length = 2000)
+    private String failureMessage;
+}
@@ -0,0 +1,49 @@
+package com.dev.pranay.user_passport_demo.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Progress of one bulk import. It is saved in the same transaction as each chunk of users, so
+// linesCommitted is always exactly how far into the file the database is, and a resume starts there.
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "import_job_seq")
+    @SequenceGenerator(name = "import_job_seq", sequenceName = "import_job_seq", allocationSize = 1)
+    private Long id;
+
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    private ImportStatus status;
+
+    // Data lines (header excluded) fully handled by committed chunks, imported or rejected
+    private long linesCommitted;
+    // linesCommitted when the current run started, for the lines/second figure
+    private long startLine;
+    private long importedCount;
+    private long rejectedCount;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    @Column(length = 2000)
+    private String failureMessage;
+
+    // First few rejected lines with the reason, capped so a bad file can't grow the row without bound
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "import_job_error", joinColumns = @JoinColumn(name = "import_job_id"))
+    @OrderColumn(name = "position")
+    @Column(name = "message", length = 500)
+    private List<String> errors = new ArrayList<>();
+}
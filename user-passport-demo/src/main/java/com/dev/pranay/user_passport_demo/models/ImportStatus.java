@@ -0,0 +1,7 @@
+package com.dev.pranay.user_passport_demo.models;
+
+public enum ImportStatus {
+    RUNNING,
+    FAILED,
+    COMPLETED
+}
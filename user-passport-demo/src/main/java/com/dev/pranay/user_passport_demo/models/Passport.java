@@ -4,17 +4,31 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
 @Entity
+// (expiry_date, id) serves the expiry scanner's keyset range query without touching the rest of the table,
+// nationality the search by nationality in GET /api/user/search
+@Table(name = "passport", indexes = {
+        @Index(name = "idx_passport_expiry_date", columnList = "expiryDate, id"),
+        @Index(name = "idx_passport_nationality", columnList = "nationality")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "passports")
+// See User: a nationality change doesn't rewrite passport_number, and so doesn't touch its unique index
+@DynamicUpdate
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class Passport {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "passport_seq")
+    @SequenceGenerator(name = "passport_seq", sequenceName = "passport_seq", allocationSize = 50)
     private Long id;
     @Column(unique = true)
     private String passportNumber;
@@ -28,6 +42,12 @@ public class Passport {
     private LocalDateTime issueDate;
     private LocalDateTime expiryDate;
 
+    // See User.version
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     public void prePersist() {
         if (issueDate == null) {
@@ -0,0 +1,32 @@
+package com.dev.pranay.user_passport_demo.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One passport found by an expiry scan, with its holder, so ops can read the list without touching passport/users.
+// Only the rows of the latest completed run are kept.
+@Entity
+@Table(name = "passport_expiry", indexes = @Index(name = "idx_passport_expiry_run", columnList = "runId, expiryDate, passportId"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PassportExpiry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "passport_expiry_seq")
+    @SequenceGenerator(name = "passport_expiry_seq", sequenceName = "passport_expiry_seq", allocationSize = 50)
+    private Long id;
+
+    private Long runId;
+    private Long passportId;
+    private String passportNumber;
+    private String nationality;
+    private LocalDateTime expiryDate;
+    private Long userId;
+    private String userName;
+    private String userEmail;
+}
@@ -4,20 +4,38 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.LastModifiedDate;
 
 import java.time.LocalDateTime;
 
 @Entity(name = "users")
+// For GET /api/user/search: exact email, name prefix (a LIKE 'x%' range scan)
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_email", columnList = "email"),
+        @Index(name = "idx_users_name", columnList = "name")
+})
+// Only used when the second-level cache is switched on (application-cache.properties).
+// READ_WRITE keeps the region in step with every insert/update/delete Hibernate runs.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+// UPDATEs set only the columns that changed (PATCH /api/user/{id} changes one or two), not every column. The
+// statement text varies with the columns, so JDBC batching only groups updates that changed the same ones.
+@DynamicUpdate
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // SEQUENCE instead of IDENTITY: Hibernate can't batch inserts when the id only exists after the INSERT.
+    // allocationSize = 50 lets the pooled optimizer hand out 50 ids per sequence call.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
     private String name;
     private String email;
@@ -32,6 +50,14 @@ public class User {
     @UpdateTimestamp
     private LocalDateTime modifiedAt;
 
+    // Optimistic locking: Hibernate adds "AND version = ?" to its UPDATEs/DELETEs and bumps the value, so a writer
+    // holding an older copy fails instead of silently overwriting. The native upserts bump it as well.
+    // The default covers rows inserted outside JPA (bulk loads, seeding).
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
 
     /*8
     Each user can only have one passport.
@@ -0,0 +1,15 @@
+package com.dev.pranay.user_passport_demo.repository;
+
+import com.dev.pranay.user_passport_demo.models.ExpiryScanRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ExpiryScanRunRepository extends JpaRepository<ExpiryScanRun, Long> {
+
+    Optional<ExpiryScanRun> findTopByFinishedAtIsNotNullAndFailureMessageIsNullOrderByIdDesc();
+
+    Optional<ExpiryScanRun> findTopByOrderByIdDesc();
+}
@@ -0,0 +1,9 @@
+package com.dev.pranay.user_passport_demo.repository;
+
+import com.dev.pranay.user_passport_demo.models.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+}
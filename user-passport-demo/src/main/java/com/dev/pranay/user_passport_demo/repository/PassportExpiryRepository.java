@@ -0,0 +1,30 @@
+package com.dev.pranay.user_passport_demo.repository;
+
+import com.dev.pranay.user_passport_demo.dtos.ExpiringPassportDto;
+import com.dev.pranay.user_passport_demo.models.PassportExpiry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PassportExpiryRepository extends JpaRepository<PassportExpiry, Long> {
+
+    // Same (expiryDate, passport id) keyset as PassportRepository.findExpiringAfter, within one run
+    @Query("SELECT new com.dev.pranay.user_passport_demo.dtos.ExpiringPassportDto(e.passportId, e.passportNumber, "
+            + "e.nationality, e.expiryDate, e.userId, e.userName, e.userEmail) "
+            + "FROM PassportExpiry e WHERE e.runId = :runId AND e.expiryDate >= :afterExpiry "
+            + "AND (e.expiryDate > :afterExpiry OR e.passportId > :afterId) "
+            + "ORDER BY e.expiryDate, e.passportId")
+    List<ExpiringPassportDto> findByRunAfter(@Param("runId") Long runId, @Param("afterExpiry") LocalDateTime afterExpiry,
+                                             @Param("afterId") Long afterId, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM PassportExpiry e WHERE e.runId <> :runId")
+    int deleteOtherRuns(@Param("runId") Long runId);
+}
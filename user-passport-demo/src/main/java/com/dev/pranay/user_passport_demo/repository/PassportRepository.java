@@ -1,9 +1,40 @@
 package com.dev.pranay.user_passport_demo.repository;
 
+import com.dev.pranay.user_passport_demo.dtos.ExpiringPassportDto;
 import com.dev.pranay.user_passport_demo.models.Passport;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 @Repository
 public interface PassportRepository extends JpaRepository<Passport, Long> {
+
+    // One IN query per import chunk instead of an exists check per record
+    @Query("SELECT p.passportNumber FROM Passport p WHERE p.passportNumber IN :passportNumbers")
+    Set<String> findExistingPassportNumbers(@Param("passportNumbers") Collection<String> passportNumbers);
+
+    // Keyset page of passports expiring before :until, after the cursor (afterExpiry, afterId); start with the window
+    // start and id 0. The leading range on expiryDate lets H2 walk idx_passport_expiry_date from the cursor on
+    // instead of scanning and sorting the table.
+    @Query("SELECT new com.dev.pranay.user_passport_demo.dtos.ExpiringPassportDto(p.id, p.passportNumber, p.nationality, "
+            + "p.expiryDate, u.id, u.name, u.email) "
+            + "FROM Passport p LEFT JOIN users u ON u.passport = p "
+            + "WHERE p.expiryDate >= :afterExpiry AND p.expiryDate < :until "
+            + "AND (p.expiryDate > :afterExpiry OR p.id > :afterId) "
+            + "ORDER BY p.expiryDate, p.id")
+    List<ExpiringPassportDto> findExpiringAfter(@Param("afterExpiry") LocalDateTime afterExpiry, @Param("afterId") Long afterId,
+                                                @Param("until") LocalDateTime until, Limit limit);
+
+    // Bulk delete, see UserRepository.deleteAllByIdIn
+    @Modifying
+    @Query("DELETE FROM Passport p WHERE p.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
 }
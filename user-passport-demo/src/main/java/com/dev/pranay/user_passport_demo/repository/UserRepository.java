@@ -1,20 +1,117 @@
 package com.dev.pranay.user_passport_demo.repository;
 
+import com.dev.pranay.user_passport_demo.dtos.UpsertedPassport;
+import com.dev.pranay.user_passport_demo.dtos.StampedUser;
 import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.dtos.UserStamp;
 import com.dev.pranay.user_passport_demo.models.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserSearchRepository {
 
+    // Cacheable only takes effect with the second-level cache on; any write to users/passport invalidates it
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT u FROM users u JOIN FETCH u.passport WHERE u.id = :id")
     User fetchUserWithPassport(@Param("id") Long id);
 
     @Query("SELECT u from users u JOIN FETCH u.passport") //Avoids 10 queries (N+1 problem). Only 1 optimized JOIN.
     List<User> findAllUsersWithPassports();
+
+    // DTO projections for the read-only endpoints: only the columns UserDto needs are selected, and nothing
+    // ends up in the persistence context (no entity instances, no dirty-checking snapshots, no timestamps).
+    // The single user comes with its stamp, so the cached copy carries its own ETag/Last-Modified
+    @Query("SELECT new com.dev.pranay.user_passport_demo.dtos.StampedUser(u.id, u.name, u.email, p.id, p.passportNumber, "
+            + "p.nationality, u.version, p.version, u.modifiedAt) FROM users u LEFT JOIN u.passport p WHERE u.id = :id")
+    Optional<StampedUser> findStampedUserById(@Param("id") Long id);
+
+    // The endpoints stream (below); the list form is kept for the benchmarks' list-based baselines
+    @Query("SELECT new com.dev.pranay.user_passport_demo.dtos.UserDto(u.id, u.name, u.email, p.id, p.passportNumber, p.nationality) "
+            + "FROM users u JOIN u.passport p")
+    List<UserDto> findAllUserDtosWithPassports();
+
+    // Keyset pagination: the caller passes the last id it has seen, so every page is an index range scan on
+    // users.id instead of an OFFSET that gets slower the deeper you page.
+    @Query("SELECT new com.dev.pranay.user_passport_demo.dtos.UserDto(u.id, u.name, u.email, p.id, p.passportNumber, p.nationality) "
+            + "FROM users u LEFT JOIN u.passport p WHERE u.id > :afterId ORDER BY u.id")
+    List<UserDto> findUserDtosAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT new com.dev.pranay.user_passport_demo.dtos.UserDto(u.id, u.name, u.email, p.id, p.passportNumber, p.nationality) "
+            + "FROM users u JOIN u.passport p WHERE u.id > :afterId ORDER BY u.id")
+    List<UserDto> findUserDtosWithPassportsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    // Streams must be consumed inside a transaction and closed by the caller (try-with-resources).
+    // The fetch size keeps the driver from buffering the whole result set. Projections like the list queries above,
+    // so nothing accumulates in the persistence context while the stream is read.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.dev.pranay.user_passport_demo.dtos.UserDto(u.id, u.name, u.email, p.id, p.passportNumber, p.nationality) "
+            + "FROM users u LEFT JOIN u.passport p ORDER BY u.id")
+    Stream<UserDto> streamAllUserDtos();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.dev.pranay.user_passport_demo.dtos.UserDto(u.id, u.name, u.email, p.id, p.passportNumber, p.nationality) "
+            + "FROM users u JOIN u.passport p ORDER BY u.id")
+    Stream<UserDto> streamAllUserDtosWithPassports();
+
+    // Conditional GETs (ETag/Last-Modified): timestamps and versions only. Passport changes bump the passport's
+    // version without touching users.modified_at, so both versions are part of the ETag.
+    @Query("SELECT new com.dev.pranay.user_passport_demo.dtos.UserStamp(u.id, u.id, u.version, p.version, u.modifiedAt) "
+            + "FROM users u LEFT JOIN u.passport p WHERE u.id = :id")
+    Optional<UserStamp> findStampById(@Param("id") Long id);
+
+    @Query("SELECT new com.dev.pranay.user_passport_demo.dtos.UserStamp(COUNT(u), MAX(u.id), "
+            + "SUM(u.version), SUM(p.version), MAX(u.modifiedAt)) FROM users u LEFT JOIN u.passport p")
+    UserStamp findStampOfAll();
+
+    // Bulk delete (DELETE /api/user). The JPQL bulk statements skip deleteById's entity load and per-row cascade;
+    // Hibernate still invalidates the users/passport cache regions for them.
+    @Query("SELECT u.id FROM users u WHERE u.createdAt < :createdBefore ORDER BY u.id")
+    List<Long> findIdsCreatedBefore(@Param("createdBefore") LocalDateTime createdBefore, Limit limit);
+
+    @Query("SELECT p.id FROM users u JOIN u.passport p WHERE u.id IN :ids")
+    List<Long> findPassportIdsOf(@Param("ids") Collection<Long> ids);
+
+    // users.passport_id references passport, so the users go first and their passports after them
+    @Modifying
+    @Query("DELETE FROM users u WHERE u.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Native single-statement upserts (H2 data change delta tables). The users UPDATE runs inside FINAL TABLE, so the
+    // same round trip reads the passport back. With an expected version (a PUT with If-Match) only that version is
+    // updated, null updates whatever is there. No row: the user doesn't exist or has another version.
+    @Query(value = "SELECT p.id AS passportId, p.passport_number AS passportNumber, p.nationality AS nationality "
+            + "FROM FINAL TABLE (UPDATE users SET name = :name, email = :email, modified_at = :modifiedAt, version = version + 1 "
+            + "WHERE id = :id AND (CAST(:expectedVersion AS BIGINT) IS NULL OR version = :expectedVersion)) u "
+            + "LEFT JOIN passport p ON p.id = u.passport_id", nativeQuery = true)
+    Optional<UpsertedPassport> updateUser(@Param("id") Long id, @Param("expectedVersion") Long expectedVersion,
+                                          @Param("name") String name, @Param("email") String email,
+                                          @Param("modifiedAt") LocalDateTime modifiedAt);
+
+    // Same users UPDATE, feeding a MERGE into the user's passport. No row: the user doesn't exist, has another version
+    // or has no passport yet (the users row is updated either way, the caller's transaction covers the fallback).
+    @Query(value = "SELECT p.id AS passportId, p.passport_number AS passportNumber, p.nationality AS nationality "
+            + "FROM FINAL TABLE (MERGE INTO passport p USING ("
+            + "SELECT passport_id FROM FINAL TABLE (UPDATE users SET name = :name, email = :email, modified_at = :modifiedAt, version = version + 1 "
+            + "WHERE id = :id AND (CAST(:expectedVersion AS BIGINT) IS NULL OR version = :expectedVersion))"
+            + ") u ON p.id = u.passport_id "
+            + "WHEN MATCHED THEN UPDATE SET passport_number = :passportNumber, nationality = :nationality, version = p.version + 1) p", nativeQuery = true)
+    Optional<UpsertedPassport> updateUserAndPassport(@Param("id") Long id, @Param("expectedVersion") Long expectedVersion,
+                                                     @Param("name") String name,
+                                                     @Param("email") String email, @Param("modifiedAt") LocalDateTime modifiedAt,
+                                                     @Param("passportNumber") String passportNumber,
+                                                     @Param("nationality") String nationality);
 }
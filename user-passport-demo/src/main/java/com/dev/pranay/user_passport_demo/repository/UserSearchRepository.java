@@ -0,0 +1,16 @@
+package com.dev.pranay.user_passport_demo.repository;
+
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.models.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+// Fragment of UserRepository: JpaSpecificationExecutor only returns entities, which would load every passport
+// with a query of its own. This runs the specification as one users LEFT JOIN passport projection instead.
+public interface UserSearchRepository {
+
+    // Ordered by id, at most limit rows
+    List<UserDto> searchUserDtos(Specification<User> specification, Limit limit);
+}
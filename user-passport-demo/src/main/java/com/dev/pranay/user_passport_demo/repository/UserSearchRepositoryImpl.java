@@ -0,0 +1,40 @@
+package com.dev.pranay.user_passport_demo.repository;
+
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.models.Passport;
+import com.dev.pranay.user_passport_demo.models.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class UserSearchRepositoryImpl implements UserSearchRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<UserDto> searchUserDtos(Specification<User> specification, Limit limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserDto> query = cb.createQuery(UserDto.class);
+        Root<User> user = query.from(User.class);
+        Join<User, Passport> passport = UserSpecifications.passportOf(user);
+        query.select(cb.construct(UserDto.class, user.get("id"), user.get("name"), user.get("email"),
+                passport.get("id"), passport.get("passportNumber"), passport.get("nationality")));
+        Predicate predicate = specification.toPredicate(user, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(user.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit.max())
+                .getResultList();
+    }
+}
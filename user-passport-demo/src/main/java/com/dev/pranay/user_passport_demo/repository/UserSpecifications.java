@@ -0,0 +1,48 @@
+package com.dev.pranay.user_passport_demo.repository;
+
+import com.dev.pranay.user_passport_demo.models.Passport;
+import com.dev.pranay.user_passport_demo.models.User;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import org.springframework.data.jpa.domain.Specification;
+
+// The criteria GET /api/user/search combines, each backed by an index (see User and Passport)
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> hasNationality(String nationality) {
+        return (user, query, cb) -> cb.equal(passportOf(user).get("nationality"), nationality);
+    }
+
+    // LIKE 'prefix%' is an index range scan on users.name; the prefix is escaped so % and _ match themselves
+    public static Specification<User> nameStartsWith(String prefix) {
+        return (user, query, cb) -> cb.like(user.get("name"), escapeLike(prefix) + "%", '\\');
+    }
+
+    public static Specification<User> hasEmail(String email) {
+        return (user, query, cb) -> cb.equal(user.get("email"), email);
+    }
+
+    // Keyset pagination on users.id, as in UserRepository.findUserDtosAfter
+    public static Specification<User> idAfter(Long afterId) {
+        return (user, query, cb) -> cb.greaterThan(user.get("id"), afterId);
+    }
+
+    // The LEFT JOIN the search query selects the passport columns from, so a criterion on the passport doesn't
+    // add a second (inner) join of its own
+    @SuppressWarnings("unchecked")
+    static Join<User, Passport> passportOf(From<?, User> user) {
+        return user.getJoins().stream()
+                .filter(join -> join.getAttribute().getName().equals("passport"))
+                .map(join -> (Join<User, Passport>) join)
+                .findFirst()
+                .orElseGet(() -> user.join("passport", JoinType.LEFT));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,75 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.CacheRegionStatsDto;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class CacheStatisticsService {
+
+    // Region names from the @Cache annotations and the Hibernate default query region, see ehcache.xml
+    private static final List<String> ENTITY_REGIONS = List.of("users", "passports");
+    private static final String QUERY_REGION = "default-query-results-region";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    // The same property Hibernate reads, off by default and switched on by the cache profile
+    @Value("${spring.jpa.properties.hibernate.cache.use_second_level_cache:false}")
+    private boolean secondLevelCacheEnabled;
+
+    public boolean isSecondLevelCacheEnabled() {
+        return secondLevelCacheEnabled;
+    }
+
+    public List<CacheRegionStatsDto> getRegionStatistics() {
+        if (!isSecondLevelCacheEnabled()) {
+            return List.of();
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        List<CacheRegionStatsDto> regions = new ArrayList<>();
+        for (String region : ENTITY_REGIONS) {
+            regions.add(toDto(region, statistics.getDomainDataRegionStatistics(region)));
+        }
+        regions.add(toDto(QUERY_REGION, statistics.getQueryRegionStatistics(QUERY_REGION)));
+        return regions;
+    }
+
+    // Hibernate counts hits/misses/puts; evictions (size bound or TTL) only ehcache knows about,
+    // it publishes them on the JCache statistics MBean of each cache.
+    private CacheRegionStatsDto toDto(String region, CacheRegionStatistics regionStatistics) {
+        long hits = regionStatistics != null ? regionStatistics.getHitCount() : 0;
+        long misses = regionStatistics != null ? regionStatistics.getMissCount() : 0;
+        long puts = regionStatistics != null ? regionStatistics.getPutCount() : 0;
+        return new CacheRegionStatsDto(region, hits, misses, puts, jcacheEvictions(region));
+    }
+
+    private long jcacheEvictions(String region) {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> names = mBeanServer.queryNames(
+                    new ObjectName("javax.cache:type=CacheStatistics,Cache=" + region + ",*"), null);
+            long evictions = 0;
+            for (ObjectName name : names) {
+                evictions += (Long) mBeanServer.getAttribute(name, "CacheEvictions");
+            }
+            return evictions;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not read cache statistics for region " + region, e);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.ExpiringPassportDto;
+import com.dev.pranay.user_passport_demo.dtos.ExpiryScanRunDto;
+import com.dev.pranay.user_passport_demo.models.ExpiryScanRun;
+import com.dev.pranay.user_passport_demo.models.PassportExpiry;
+import com.dev.pranay.user_passport_demo.repository.ExpiryScanRunRepository;
+import com.dev.pranay.user_passport_demo.repository.PassportExpiryRepository;
+import com.dev.pranay.user_passport_demo.repository.PassportRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Finds the passports expiring within passport.expiry-scan.window and writes them, with their holders, to the
+// passport_expiry summary table. Walks idx_passport_expiry_date with a keyset cursor one chunk at a time; each chunk
+// is one transaction together with the run's progress. Runs on the scheduler thread (daily by default) or on the
+// task executor when triggered over HTTP, never on a request thread.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PassportExpiryScanService {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final PassportRepository passportRepository;
+    private final PassportExpiryRepository passportExpiryRepository;
+    private final ExpiryScanRunRepository expiryScanRunRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor applicationTaskExecutor;
+    private final MeterRegistry meterRegistry;
+
+    // One scan at a time per instance
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${passport.expiry-scan.window:90d}")
+    private Duration window;
+
+    @Value("${passport.expiry-scan.chunk-size:1000}")
+    private int chunkSize;
+
+    @Scheduled(cron = "${passport.expiry-scan.cron:0 0 2 * * *}")
+    public void scheduledScan() {
+        try {
+            scan();
+        } catch (IllegalStateException e) {
+            log.info("Skipping scheduled passport expiry scan: {}", e.getMessage());
+        }
+    }
+
+    // Runs a scan on the calling thread and returns the finished run
+    public ExpiryScanRunDto scan() {
+        return complete(begin());
+    }
+
+    public ExpiryScanRunDto startInBackground() {
+        ExpiryScanRun run = begin();
+        try {
+            applicationTaskExecutor.execute(() -> complete(run));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return toDto(run);
+    }
+
+    public ExpiryScanRunDto getLatestRun() {
+        return expiryScanRunRepository.findTopByOrderByIdDesc()
+                .map(this::toDto)
+                .orElseThrow(() -> new RuntimeException("No passport expiry scan has run yet"));
+    }
+
+    // Result of the latest completed scan, ordered by expiry date then passport id. The next page starts after the
+    // last row's (expiryDate, passportId); no afterExpiry means the first page.
+    public List<ExpiringPassportDto> getExpiringPassports(LocalDateTime afterExpiry, Long afterId, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+        return expiryScanRunRepository.findTopByFinishedAtIsNotNullAndFailureMessageIsNullOrderByIdDesc()
+                .map(run -> passportExpiryRepository.findByRunAfter(run.getId(),
+                        afterExpiry != null ? afterExpiry : run.getWindowStart(), afterExpiry != null ? afterId : 0L,
+                        Limit.of(Math.min(size, MAX_PAGE_SIZE))))
+                .orElse(List.of());
+    }
+
+    private ExpiryScanRun begin() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A passport expiry scan is already running");
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            ExpiryScanRun run = new ExpiryScanRun();
+            run.setWindowStart(now);
+            run.setWindowEnd(now.plus(window));
+            run.setStartedAt(now);
+            return expiryScanRunRepository.save(run);
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    private ExpiryScanRunDto complete(ExpiryScanRun run) {
+        long start = System.nanoTime();
+        String outcome = "completed";
+        try {
+            try {
+                run = scanChunks(run);
+                // Readers switch to this run once it is finished; the older rows go in the same transaction
+                ExpiryScanRun finished = run;
+                run = transactionTemplate.execute(status -> {
+                    passportExpiryRepository.deleteOtherRuns(finished.getId());
+                    return finish(finished, start);
+                });
+            } catch (RuntimeException e) {
+                log.warn("Passport expiry scan {} failed", run.getId(), e);
+                outcome = "failed";
+                run = fail(run, String.valueOf(e.getMessage()), start);
+            }
+            Timer.builder("passport.expiry.scan")
+                    .description("Runtime of the passport expiry scan")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            meterRegistry.counter("passport.expiry.scan.passports").increment(run.getPassportsFound());
+            log.info("Passport expiry scan {} {}: {} passports expiring before {} in {} ms", run.getId(), outcome,
+                    run.getPassportsFound(), run.getWindowEnd(), run.getMillis());
+            return toDto(run);
+        } finally {
+            // An Error gets past the catch above; the run must not stay RUNNING for ever
+            if (run.getFinishedAt() == null) {
+                try {
+                    fail(run, "Scan aborted", start);
+                } catch (RuntimeException e) {
+                    log.error("Could not mark passport expiry scan {} as failed", run.getId(), e);
+                }
+            }
+            running.set(false);
+        }
+    }
+
+    private ExpiryScanRun scanChunks(ExpiryScanRun run) {
+        LocalDateTime afterExpiry = run.getWindowStart();
+        long afterId = 0;
+        List<ExpiringPassportDto> chunk;
+        while (!(chunk = passportRepository.findExpiringAfter(afterExpiry, afterId, run.getWindowEnd(), Limit.of(chunkSize))).isEmpty()) {
+            run = commitChunk(run, chunk);
+            ExpiringPassportDto last = chunk.get(chunk.size() - 1);
+            afterExpiry = last.getExpiryDate();
+            afterId = last.getPassportId();
+        }
+        return run;
+    }
+
+    private ExpiryScanRun commitChunk(ExpiryScanRun run, List<ExpiringPassportDto> chunk) {
+        return transactionTemplate.execute(status -> {
+            List<PassportExpiry> rows = chunk.stream()
+                    .map(passport -> new PassportExpiry(null, run.getId(), passport.getPassportId(), passport.getPassportNumber(),
+                            passport.getNationality(), passport.getExpiryDate(), passport.getUserId(), passport.getUserName(),
+                            passport.getUserEmail()))
+                    .toList();
+            passportExpiryRepository.saveAll(rows);
+            run.setPassportsFound(run.getPassportsFound() + rows.size());
+            run.setChunks(run.getChunks() + 1);
+            ExpiryScanRun merged = expiryScanRunRepository.save(run);
+            // flush sends the inserts as JDBC batches, clear drops the chunk from the persistence context
+            entityManager.flush();
+            entityManager.clear();
+            return merged;
+        });
+    }
+
+    private ExpiryScanRun fail(ExpiryScanRun run, String message, long startNanos) {
+        // The failed chunk's progress was rolled back with it
+        ExpiryScanRun failed = expiryScanRunRepository.findById(run.getId()).orElse(run);
+        failed.setFailureMessage(truncate(message, 2000));
+        return finish(failed, startNanos);
+    }
+
+    private ExpiryScanRun finish(ExpiryScanRun run, long startNanos) {
+        run.setFinishedAt(LocalDateTime.now());
+        run.setMillis((System.nanoTime() - startNanos) / 1_000_000);
+        return expiryScanRunRepository.save(run);
+    }
+
+    private ExpiryScanRunDto toDto(ExpiryScanRun run) {
+        String status = run.getFinishedAt() == null ? "RUNNING" : run.getFailureMessage() != null ? "FAILED" : "COMPLETED";
+        return new ExpiryScanRunDto(run.getId(), status, run.getWindowStart(), run.getWindowEnd(), run.getPassportsFound(),
+                run.getChunks(), run.getStartedAt(), run.getFinishedAt(), run.getMillis(), run.getFailureMessage());
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+}
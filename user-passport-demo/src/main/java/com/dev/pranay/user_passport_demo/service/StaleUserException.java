@@ -0,0 +1,14 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// A conditional PUT whose If-Match no longer matches the user: someone else changed it since the caller read it.
+// Not a ConcurrencyFailureException on purpose, retrying can't make a stale copy current.
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class StaleUserException extends RuntimeException {
+
+    public StaleUserException(Long id) {
+        super("User " + id + " has changed since it was read");
+    }
+}
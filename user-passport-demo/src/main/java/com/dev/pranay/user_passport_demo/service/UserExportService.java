@@ -0,0 +1,155 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.ExportFileDto;
+import com.dev.pranay.user_passport_demo.dtos.ExportResultDto;
+import com.dev.pranay.user_passport_demo.export.UserExportFormat;
+import com.dev.pranay.user_passport_demo.export.UserExportWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Dumps users joined with their passport into binary files (see UserExportFormat), one file per users.id range.
+// Plain JDBC on a forward-only, read-only cursor: no entities, no JSON, and rows go from the ResultSet
+// into the writer's buffer one by one. Each partition runs on its own thread and connection.
+@Service
+@RequiredArgsConstructor
+public class UserExportService {
+
+    private static final String SELECT_RANGE =
+            "SELECT u.id, u.name, u.email, u.created_at, u.modified_at, "
+                    + "p.id, p.passport_number, p.nationality, p.issue_date, p.expiry_date "
+                    + "FROM users u LEFT JOIN passport p ON p.id = u.passport_id "
+                    + "WHERE u.id >= ? AND u.id < ? ORDER BY u.id";
+    private static final DateTimeFormatter EXPORT_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor applicationTaskExecutor;
+
+    @Value("${user.export.directory:./exports}")
+    private Path exportDirectory;
+
+    // Rows the driver fetches per round trip, i.e. the chunk held in memory on the JDBC side
+    @Value("${user.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${user.export.buffer-size:65536}")
+    private int bufferSize;
+
+    // Each partition holds a connection and a direct buffer for the whole export
+    @Value("${user.export.max-partitions:8}")
+    private int maxPartitions;
+
+    public ExportResultDto exportAll(int partitions) {
+        if (partitions < 1 || partitions > maxPartitions) {
+            throw new IllegalArgumentException("Partitions must be between 1 and " + maxPartitions + ": " + partitions);
+        }
+        long start = System.nanoTime();
+        String exportName = "users-" + LocalDateTime.now().format(EXPORT_NAME_FORMAT);
+        try {
+            Files.createDirectories(exportDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM users");
+        long minId = bounds.get("min_id") == null ? 0 : ((Number) bounds.get("min_id")).longValue();
+        long maxId = bounds.get("max_id") == null ? -1 : ((Number) bounds.get("max_id")).longValue();
+        // Equal id ranges; with sequence ids that is close to equal row counts
+        long rangeSize = Math.max(1, Math.ceilDiv(maxId - minId + 1, partitions));
+
+        List<CompletableFuture<ExportFileDto>> parts = new ArrayList<>();
+        List<Path> paths = new ArrayList<>();
+        int part = 0;
+        for (long fromId = minId; fromId <= maxId || part == 0; fromId += rangeSize) {
+            long from = fromId;
+            long to = Math.min(fromId + rangeSize, maxId + 1);
+            Path file = exportDirectory.resolve(String.format("%s.part-%04d%s", exportName, part++, UserExportFormat.FILE_EXTENSION));
+            paths.add(file);
+            parts.add(CompletableFuture.supplyAsync(() -> exportRange(file, from, to), applicationTaskExecutor));
+        }
+
+        // Wait for every partition even after a failure, so none is still writing when the files get deleted
+        List<ExportFileDto> files = new ArrayList<>(parts.size());
+        RuntimeException failure = null;
+        for (CompletableFuture<ExportFileDto> future : parts) {
+            try {
+                files.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+        }
+        if (failure != null) {
+            deleteAll(paths, failure);
+            throw failure;
+        }
+
+        long totalRows = files.stream().mapToLong(ExportFileDto::getRows).sum();
+        long totalBytes = files.stream().mapToLong(ExportFileDto::getBytes).sum();
+        return new ExportResultDto(exportName, files, totalRows, totalBytes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private ExportFileDto exportRange(Path file, long fromId, long toId) {
+        // Some drivers (PostgreSQL) only stream with a fetch size inside a transaction
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        long rows = readOnly.execute(status -> {
+            try (UserExportWriter writer = new UserExportWriter(file, bufferSize)) {
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(SELECT_RANGE,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(fetchSize);
+                    statement.setLong(1, fromId);
+                    statement.setLong(2, toId);
+                    return statement;
+                }, (RowCallbackHandler) row -> {
+                    try {
+                        writer.write(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.finish();
+                return writer.getRows();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        try {
+            return new ExportFileDto(file.getFileName().toString(), fromId, toId, rows, Files.size(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A partial export is removed as a whole rather than left behind next to complete ones
+    private void deleteAll(List<Path> files, RuntimeException failure) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.ImportJobDto;
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.dtos.UserImportRow;
+import com.dev.pranay.user_passport_demo.mappers.UserMapper;
+import com.dev.pranay.user_passport_demo.models.ImportJob;
+import com.dev.pranay.user_passport_demo.models.ImportStatus;
+import com.dev.pranay.user_passport_demo.models.User;
+import com.dev.pranay.user_passport_demo.repository.ImportJobRepository;
+import com.dev.pranay.user_passport_demo.repository.PassportRepository;
+import com.dev.pranay.user_passport_demo.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Streams an NDJSON (.ndjson/.jsonl, one UserDto per line) or CSV (.csv, see UserImportRow) file into users and
+// passports. The file is read line by line and only one chunk is ever held in memory. Every chunk is one
+// transaction that also records the job's progress, so after a failure the job resumes at the first line
+// that was not committed.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserImportService {
+
+    private static final String CSV_HEADER = "name,email,passportNumber,nationality";
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final CsvMapper CSV_MAPPER = new CsvMapper().enable(CsvParser.Feature.TRIM_SPACES);
+    private static final ObjectReader CSV_READER = CSV_MAPPER.readerFor(UserImportRow.class)
+            .with(CSV_MAPPER.schemaFor(UserImportRow.class));
+
+    private final UserRepository userRepository;
+    private final PassportRepository passportRepository;
+    private final ImportJobRepository importJobRepository;
+    private final UserMapper userMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor applicationTaskExecutor;
+    private final MeterRegistry meterRegistry;
+
+    // Jobs this instance is working on, so a resume can't start a second reader on the same job
+    private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+
+    @Value("${user.import.directory:./imports}")
+    private Path importDirectory;
+
+    @Value("${user.import.chunk-size:1000}")
+    private int chunkSize;
+
+    public ImportJobDto createJob(String fileName) {
+        resolve(fileName);
+        ImportJob job = new ImportJob();
+        job.setFileName(fileName);
+        job.setStatus(ImportStatus.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        return toDto(importJobRepository.save(job));
+    }
+
+    public void startInBackground(Long jobId) {
+        ImportJob job = findJob(jobId);
+        if (job.getStatus() == ImportStatus.COMPLETED) {
+            throw new IllegalStateException("Import job " + jobId + " has already completed");
+        }
+        if (activeJobs.contains(jobId)) {
+            throw new IllegalStateException("Import job " + jobId + " is already running");
+        }
+        applicationTaskExecutor.execute(() -> run(jobId));
+    }
+
+    public ImportJobDto getJob(Long jobId) {
+        return toDto(findJob(jobId));
+    }
+
+    // Runs (or resumes) the job on the calling thread and returns its final state
+    public ImportJobDto run(Long jobId) {
+        if (!activeJobs.add(jobId)) {
+            throw new IllegalStateException("Import job " + jobId + " is already running");
+        }
+        try {
+            ImportJob job = findJob(jobId);
+            job.setStatus(ImportStatus.RUNNING);
+            job.setStartLine(job.getLinesCommitted());
+            job.setStartedAt(LocalDateTime.now());
+            job.setFinishedAt(null);
+            job.setFailureMessage(null);
+            job = importJobRepository.save(job);
+            try {
+                job = importLines(job);
+                job.setStatus(ImportStatus.COMPLETED);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Import job {} of {} failed", jobId, job.getFileName(), e);
+                // The failed chunk's changes to the job were rolled back with it, continue from what was committed
+                job = findJob(jobId);
+                job.setStatus(ImportStatus.FAILED);
+                job.setFailureMessage(truncate(String.valueOf(e.getMessage()), 2000));
+            }
+            job.setFinishedAt(LocalDateTime.now());
+            return toDto(importJobRepository.save(job));
+        } finally {
+            activeJobs.remove(jobId);
+        }
+    }
+
+    private ImportJob importLines(ImportJob job) throws IOException {
+        Path file = resolve(job.getFileName());
+        boolean csv = file.getFileName().toString().endsWith(".csv");
+        ObjectReader reader = csv ? CSV_READER : objectMapper.readerFor(UserDto.class);
+
+        try (BufferedReader lines = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (csv) {
+                String header = lines.readLine();
+                if (header == null || !CSV_HEADER.equalsIgnoreCase(header.replace(" ", "").strip())) {
+                    throw new IllegalArgumentException("CSV header must be " + CSV_HEADER + " but was: " + header);
+                }
+            }
+            // Lines covered by committed chunks are skipped without parsing
+            long lineNumber = 0;
+            while (lineNumber < job.getLinesCommitted() && lines.readLine() != null) {
+                lineNumber++;
+            }
+
+            List<ImportLine> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                chunk.add(parse(reader, csv, lineNumber, line));
+                if (chunk.size() == chunkSize) {
+                    job = commitChunk(job, chunk, lineNumber);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                job = commitChunk(job, chunk, lineNumber);
+            }
+        }
+        return job;
+    }
+
+    private ImportJob commitChunk(ImportJob job, List<ImportLine> chunk, long lastLine) {
+        long importedBefore = job.getImportedCount();
+        long rejectedBefore = job.getRejectedCount();
+
+        ImportJob saved = transactionTemplate.execute(status -> {
+            Set<String> passportNumbers = new HashSet<>();
+            for (ImportLine line : chunk) {
+                if (line.user() != null && line.user().getPassportDto() != null) {
+                    passportNumbers.add(line.user().getPassportDto().getPassportNumber());
+                }
+            }
+            Set<String> existing = passportNumbers.isEmpty()
+                    ? Set.of()
+                    : passportRepository.findExistingPassportNumbers(passportNumbers);
+
+            // Earlier chunks are already in the database, so existing + seen covers the whole file
+            Set<String> seen = new HashSet<>();
+            List<User> users = new ArrayList<>(chunk.size());
+            for (ImportLine line : chunk) {
+                if (line.error() != null) {
+                    reject(job, line.number(), line.error());
+                    continue;
+                }
+                if (line.user() == null) {
+                    continue;
+                }
+                PassportDto passport = line.user().getPassportDto();
+                if (passport != null && existing.contains(passport.getPassportNumber())) {
+                    reject(job, line.number(), "passportNumber " + passport.getPassportNumber() + " already exists");
+                    continue;
+                }
+                if (passport != null && !seen.add(passport.getPassportNumber())) {
+                    reject(job, line.number(), "passportNumber " + passport.getPassportNumber() + " appears earlier in the file");
+                    continue;
+                }
+                User user = userMapper.toEntity(line.user());
+                // Imports are create-only, ids always come from the sequences
+                user.setId(null);
+                if (user.getPassport() != null) {
+                    user.getPassport().setId(null);
+                }
+                users.add(user);
+            }
+            userRepository.saveAll(users);
+
+            job.setImportedCount(job.getImportedCount() + users.size());
+            job.setLinesCommitted(lastLine);
+            ImportJob merged = importJobRepository.save(job);
+            // flush sends the inserts as JDBC batches, clear drops the chunk from the persistence context
+            entityManager.flush();
+            entityManager.clear();
+            return merged;
+        });
+
+        meterRegistry.counter("user.import.lines", "outcome", "imported").increment(saved.getImportedCount() - importedBefore);
+        meterRegistry.counter("user.import.lines", "outcome", "rejected").increment(saved.getRejectedCount() - rejectedBefore);
+        return saved;
+    }
+
+    private ImportLine parse(ObjectReader reader, boolean csv, long number, String line) {
+        if (line.isBlank()) {
+            return new ImportLine(number, null, null);
+        }
+        UserDto user;
+        try {
+            if (csv) {
+                UserImportRow row = reader.readValue(line);
+                PassportDto passport = isBlank(row.getPassportNumber())
+                        ? null
+                        : new PassportDto(null, row.getPassportNumber(), row.getNationality());
+                user = new UserDto(null, row.getName(), row.getEmail(), passport);
+            } else {
+                user = reader.readValue(line);
+            }
+        } catch (JsonProcessingException e) {
+            return new ImportLine(number, null, "malformed record: " + e.getOriginalMessage());
+        }
+        if (isBlank(user.getName()) || isBlank(user.getEmail())) {
+            return new ImportLine(number, null, "name and email are required");
+        }
+        if (user.getPassportDto() != null && isBlank(user.getPassportDto().getPassportNumber())) {
+            return new ImportLine(number, null, "passportNumber is required when a passport is given");
+        }
+        return new ImportLine(number, user, null);
+    }
+
+    private void reject(ImportJob job, long lineNumber, String reason) {
+        job.setRejectedCount(job.getRejectedCount() + 1);
+        if (job.getErrors().size() < MAX_REPORTED_ERRORS) {
+            job.getErrors().add(truncate("line " + lineNumber + ": " + reason, 500));
+        }
+    }
+
+    private Path resolve(String fileName) {
+        Path directory = importDirectory.toAbsolutePath().normalize();
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory)) {
+            throw new IllegalArgumentException("Import file must be inside the import directory: " + fileName);
+        }
+        String name = file.getFileName().toString();
+        if (!name.endsWith(".csv") && !name.endsWith(".ndjson") && !name.endsWith(".jsonl")) {
+            throw new IllegalArgumentException("Import file must be .csv, .ndjson or .jsonl: " + fileName);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Import file not found: " + fileName);
+        }
+        return file;
+    }
+
+    private ImportJob findJob(Long jobId) {
+        return importJobRepository.findById(jobId).orElseThrow(() ->
+                new RuntimeException("Import job not found with given id: " + jobId));
+    }
+
+    private ImportJobDto toDto(ImportJob job) {
+        LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+        double seconds = Duration.between(job.getStartedAt(), end).toMillis() / 1000.0;
+        double linesPerSecond = seconds > 0 ? (job.getLinesCommitted() - job.getStartLine()) / seconds : 0;
+        return new ImportJobDto(job.getId(), job.getFileName(), job.getStatus().name(), job.getLinesCommitted(),
+                job.getImportedCount(), job.getRejectedCount(), linesPerSecond, job.getStartedAt(),
+                job.getFinishedAt(), job.getFailureMessage(), List.copyOf(job.getErrors()));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    // Either a parsed user or the reason the line was rejected; both null for a blank line
+    private record ImportLine(long number, UserDto user, String error) {
+    }
+}
@@ -1,42 +1,84 @@
 package com.dev.pranay.user_passport_demo.service;
 
+import com.dev.pranay.user_passport_demo.cache.UserDtoCache;
 import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.StampedUser;
+import com.dev.pranay.user_passport_demo.dtos.UpsertedPassport;
+import com.dev.pranay.user_passport_demo.dtos.UserDeleteRequest;
+import com.dev.pranay.user_passport_demo.dtos.UserDeleteResultDto;
 import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.dtos.UserStamp;
+import com.dev.pranay.user_passport_demo.mappers.UserMapper;
+import com.dev.pranay.user_passport_demo.metrics.SqlBudget;
 import com.dev.pranay.user_passport_demo.models.Passport;
 import com.dev.pranay.user_passport_demo.models.User;
 import com.dev.pranay.user_passport_demo.repository.PassportRepository;
 import com.dev.pranay.user_passport_demo.repository.UserRepository;
-import jakarta.transaction.Transactional;
+import com.dev.pranay.user_passport_demo.repository.UserSpecifications;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final UserRepository userRepository;
     private final PassportRepository passportRepository;
-    private final ModelMapper modelMapper;
+    private final UserMapper userMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final UserDtoCache userDtoCache;
+
+    @Value("${user.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    @Value("${user.delete.chunk-size:1000}")
+    private int deleteChunkSize;
+
+    @Value("${user.update.max-attempts:5}")
+    private int updateMaxAttempts;
 
+    @Value("${user.update.backoff:10ms}")
+    private Duration updateBackoff;
+
+    // existsById, then the save: the two inserts, and a sequence fetch each for passport and user when their pooled
+    // block runs out (two on the first use after startup)
+    @SqlBudget(7)
     public UserDto createUser(UserDto userDto) {
         if (userDto.getId() != null && userRepository.existsById(userDto.getId())) {
             throw new RuntimeException("User with ID already exists: " + userDto.getId());
         }
 
-        User mappedUser = modelMapper.map(userDto, User.class);
-
-        // If the passportDto exists, convert and set it to the User entity
-        if(userDto.getPassportDto() != null) {
-            Passport passport = modelMapper.map(userDto.getPassportDto(), Passport.class);
-            mappedUser.setPassport(passport);
-        }
+        // The mapper also converts a nested passportDto, CascadeType.ALL then saves it with the user
+        User mappedUser = userMapper.toEntity(userDto);
 
         User savedUser = userRepository.save(mappedUser);
 
@@ -44,17 +86,49 @@ public class UserService {
         return convertToDto(savedUser);
     }
 
+    // Each chunk commits on its own, so a failure part way through keeps the chunks before it. The budget is per
+    // chunk: at 500 users per chunk and hibernate.jdbc.batch_size=50, ten insert batches and ten sequence fetches
+    // each for users and passports, one more fetch each on first use. It grows with the chunk size, not the input.
+    @SqlBudget(42)
+    public List<UserDto> createUsers(List<UserDto> userDtos) {
+        List<UserDto> created = new ArrayList<>(userDtos.size());
+        for (int from = 0; from < userDtos.size(); from += batchChunkSize) {
+            List<UserDto> chunk = userDtos.subList(from, Math.min(from + batchChunkSize, userDtos.size()));
+            try {
+                created.addAll(transactionTemplate.execute(status -> persistChunk(chunk)));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Batch create failed after " + created.size() + " users were committed", e);
+            }
+        }
+        return created;
+    }
+
+    private List<UserDto> persistChunk(List<UserDto> chunk) {
+        List<User> users = new ArrayList<>(chunk.size());
+        for (UserDto userDto : chunk) {
+            User user = userMapper.toEntity(userDto);
+            // Batch is create-only, ids always come from the sequences
+            user.setId(null);
+            if (user.getPassport() != null) {
+                user.getPassport().setId(null);
+            }
+            users.add(user);
+        }
+        userRepository.saveAll(users);
+        // flush sends the inserts as JDBC batches (hibernate.jdbc.batch_size), clear drops the chunk from the context
+        entityManager.flush();
+        entityManager.clear();
+        return users.stream()
+                .map(userMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
     private UserDto convertToDto(User user) {
         if (user == null) {
             throw new IllegalArgumentException("User cannot be null");
         }
-        UserDto userDto = modelMapper.map(user, UserDto.class);
-
-        if(user.getPassport() != null) {
-            PassportDto passportDto = modelMapper.map(user.getPassport(), PassportDto.class);
-            userDto.setPassportDto(passportDto);
-        }
-        return userDto;
+        // passport -> passportDto is part of the generated mapping, no second pass needed
+        return userMapper.toDto(user);
     }
 
 //    public UserDto createOrUpdateUser(UserDto userDto) {
@@ -69,8 +143,14 @@ public class UserService {
 //        return modelMapper.map(savedUser, UserDto.class);
 //    }
 
-    @Transactional // <<< Crucial: Ensures operations run within a transaction
+    // Each attempt runs in its own transaction (see withConflictRetry): findById, the updates, or an insert with
+    // its sequence fetches for a new passport
+    @SqlBudget(7)
     public UserDto createOrUpdateUser(UserDto userDto) {
+        return withConflictRetry(() -> updateUser(userDto));
+    }
+
+    private UserDto updateUser(UserDto userDto) {
         User user;
 
         // --- Update existing user path ---
@@ -134,8 +214,8 @@ public class UserService {
         // --- Create new user path ---
         else {
             // ID in DTO is null, so create a new User entity
-            user = modelMapper.map(userDto, User.class);
-            // Ensure ModelMapper configuration correctly maps nested PassportDto to a new Passport object
+            user = userMapper.toEntity(userDto);
+            // UserMapper maps a nested PassportDto to a new Passport object
             // if passportDto is present in userDto. CascadeType.ALL on User.passport
             // will ensure the new Passport is persisted along with the new User.
             // ID and timestamps for User and Passport will be generated by JPA.
@@ -145,6 +225,7 @@ public class UserService {
         // (and potentially its associated 'passport') within the transaction and issues SQL UPDATE(s).
         // For creates, it issues SQL INSERT(s). CascadeType.ALL handles the passport.
         User savedUser = userRepository.save(user);
+        userDtoCache.evict(userDto.getId());
 
         // Convert the persisted entity back to DTO for the response
         return convertToDto(savedUser);
@@ -184,8 +265,114 @@ public class UserService {
 //        return modelMapper.map(savedUser, UserDto.class);
 //    }
 
+    // Existing user: one native statement instead of findById + merge SELECT + UPDATE users + UPDATE passport.
+    // A user that doesn't exist yet, or is getting its first passport, needs generated ids and goes through JPA
+    // (the UPDATE that finds nothing, findById, then up to createUser's inserts and sequence fetches).
+    @SqlBudget(8)
     public UserDto createOrUpdateUser(Long id, UserDto userDto) {
+        return withConflictRetry(() -> upsertUser(id, userDto, null));
+    }
+
+    // PUT with If-Match, the ETag of the copy the caller changed (GET /{id}). It has to match the user's stamp, and
+    // the update then only applies to the version the stamp was read at, so a writer holding a stale copy gets a
+    // StaleUserException (412) instead of overwriting a change it never saw. Null: no precondition, as above.
+    // The stamp read, then the same statements.
+    @SqlBudget(9)
+    public UserDto createOrUpdateUser(Long id, UserDto userDto, String ifMatch) {
+        return withConflictRetry(() -> upsertUser(id, userDto, ifMatch));
+    }
+
+    private UserDto upsertUser(Long id, UserDto userDto, String ifMatch) {
+        PassportDto passportDto = userDto.getPassportDto();
+        Long expectedVersion = null;
+        if (ifMatch != null) {
+            UserStamp stamp = userRepository.findStampById(id)
+                    .filter(current -> current.eTag().equals(ifMatch))
+                    .orElseThrow(() -> new StaleUserException(id));
+            expectedVersion = stamp.version();
+            if (passportDto != null && stamp.passportVersion() == null) {
+                // A first passport goes through JPA anyway, and an UPDATE that finds nothing couldn't tell why
+                return createOrUpdateUserWithJpa(id, userDto, expectedVersion);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Optional<UpsertedPassport> upserted = passportDto == null
+                ? userRepository.updateUser(id, expectedVersion, userDto.getName(), userDto.getEmail(), now)
+                : userRepository.updateUserAndPassport(id, expectedVersion, userDto.getName(), userDto.getEmail(), now,
+                        passportDto.getPassportNumber(), passportDto.getNationality());
+        if (upserted.isEmpty()) {
+            if (expectedVersion != null) {
+                // Changed between the stamp read and the UPDATE
+                throw new StaleUserException(id);
+            }
+            return createOrUpdateUserWithJpa(id, userDto, null);
+        }
+
+        Long passportId = upserted.get().getPassportId();
+        evictAfterNativeUpdate(id, passportId);
+        PassportDto savedPassport = passportId == null
+                ? null
+                : new PassportDto(passportId, upserted.get().getPassportNumber(), upserted.get().getNationality());
+        return new UserDto(id, userDto.getName(), userDto.getEmail(), savedPassport);
+    }
+
+    // User and Passport are @Version'ed: of two updates that read the same row, the second to commit fails with an
+    // OptimisticLockingFailureException instead of overwriting the first. Each attempt is a new transaction that
+    // reads the row again; between attempts we back off exponentially, randomised so the losers don't collide again.
+    // Lock timeouts are retried the same way. Gives up and rethrows after user.update.max-attempts.
+    private <T> T withConflictRetry(Supplier<T> update) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> update.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= updateMaxAttempts) {
+                    throw e;
+                }
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    private void backOff(int attempt, RuntimeException conflict) {
+        long maxMillis = updateBackoff.toMillis() << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxMillis / 2, maxMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    // The native statements go around Hibernate, so its second-level and query caches don't see the change.
+    // Evicted now and again after commit, so a reader in between can't put the old row back.
+    private void evictAfterNativeUpdate(Long userId, Long passportId) {
+        Runnable evict = () -> {
+            Cache cache = entityManager.getEntityManagerFactory().getCache();
+            cache.evict(User.class, userId);
+            if (passportId != null) {
+                cache.evict(Passport.class, passportId);
+            }
+            entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
+        userDtoCache.evict(userId);
+    }
+
+    // Expected version: as in upsertUser, and @Version covers the user row from here to the flush
+    private UserDto createOrUpdateUserWithJpa(Long id, UserDto userDto, Long expectedVersion) {
         User user = userRepository.findById(id).orElse(new User());
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new StaleUserException(id);
+        }
 
         // Update basic user fields (excluding passport)
         user.setName(userDto.getName());
@@ -195,7 +382,7 @@ public class UserService {
         if (userDto.getPassportDto() != null) {
             if (user.getPassport() == null) {
                 // User doesn't have a passport yet
-                Passport newPassport = modelMapper.map(userDto.getPassportDto(), Passport.class);
+                Passport newPassport = userMapper.toEntity(userDto.getPassportDto());
                 user.setPassport(newPassport);
             } else {
                 // Update existing passport without changing ID
@@ -208,44 +395,223 @@ public class UserService {
 
         // Save the user (and the passport if cascade is enabled)
         User savedUser = userRepository.save(user);
+        userDtoCache.evict(savedUser.getId());
 
         return convertToDto(savedUser);
     }
 
+    // PATCH: only the fields given (not null) are applied, to the loaded entities, and with @DynamicUpdate the
+    // UPDATEs name just the columns that actually changed; a patch that changes nothing runs no UPDATE at all.
+    // The load, an UPDATE each for users and passport, or a new passport's insert and sequence fetch instead.
+    @SqlBudget(5)
+    public UserDto patchUser(Long id, UserDto patch) {
+        return withConflictRetry(() -> applyPatch(id, patch));
+    }
+
+    private UserDto applyPatch(Long id, UserDto patch) {
+        User user = userRepository.findById(id).orElseThrow(() ->
+                new RuntimeException("User not found with given id: " + id));
+        if (patch.getName() != null) {
+            user.setName(patch.getName());
+        }
+        if (patch.getEmail() != null) {
+            user.setEmail(patch.getEmail());
+        }
 
+        PassportDto passportDto = patch.getPassportDto();
+        if (passportDto != null) {
+            Passport passport = user.getPassport();
+            if (passport == null) {
+                user.setPassport(userMapper.toEntity(new PassportDto(null, passportDto.getPassportNumber(),
+                        passportDto.getNationality())));
+            } else {
+                if (passportDto.getPassportNumber() != null) {
+                    passport.setPassportNumber(passportDto.getPassportNumber());
+                }
+                if (passportDto.getNationality() != null) {
+                    passport.setNationality(passportDto.getNationality());
+                }
+            }
+        }
 
+        // Dirty checking decides what is written; flushed here so a new passport has its id for the response
+        entityManager.flush();
+        userDtoCache.evict(id);
+        return convertToDto(user);
+    }
 
+    @SqlBudget(1)
     public UserDto getUserById(Long id) {
-        User user = userRepository.findById(id).orElseThrow(() ->
-                new RuntimeException("User not found with given id: " + id));
+        return getStampedUserById(id).user();
+    }
 
-        return modelMapper.map(user, UserDto.class);
+    // The user with the stamp of the row it was read from, for GET /{id}'s ETag/Last-Modified. A cache hit answers
+    // both, 304 or not, without a query.
+    // No transaction around the cache: a hit, or a caller waiting on another's load, holds no connection
+    @SqlBudget(1)
+    public StampedUser getStampedUserById(Long id) {
+        StampedUser user = userDtoCache.get(id, this::loadUserById);
+        if (user == null) {
+            throw new RuntimeException("User not found with given id: " + id);
+        }
+        return user;
     }
 
-    public List<UserDto> getAllUsers() {
-        List<User> userList = userRepository.findAll();
-        List<UserDto> userDtoList = userList.stream()
-                .map(user -> modelMapper.map(user, UserDto.class))
-                .collect(Collectors.toList());
-        return userDtoList;
+    // Null when there is no such user, see UserDtoCache.get. Read-only, and only opened on a cache miss.
+    private StampedUser loadUserById(Long id) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        // Projection straight into the DTO, no User/Passport entities are materialised
+        return readOnly.execute(status -> userRepository.findStampedUserById(id).orElse(null));
     }
 
+    // The current stamp, for clients checking a copy they hold (If-Match on PUT) without loading the user
+    @Transactional(readOnly = true)
+    @SqlBudget(1)
+    public UserStamp getUserStamp(Long id) {
+        return userRepository.findStampById(id).orElseThrow(() ->
+                new RuntimeException("User not found with given id: " + id));
+    }
+
+    // The same for the whole collection, from aggregates over the user and passport versions. A full-table
+    // aggregate, so only worth running for a conditional request.
+    @Transactional(readOnly = true)
+    @SqlBudget(1)
+    public UserStamp getAllUsersStamp() {
+        return userRepository.findStampOfAll();
+    }
+
+    @SqlBudget(3)
     public void deleteUser(Long id) {
-        if(!userRepository.existsById(id)) {
+        DeletedRows deleted = transactionTemplate.execute(status -> deleteChunk(List.of(id)));
+        if (deleted.users() == 0) {
             throw new RuntimeException("User not found...");
         }
-        userRepository.deleteById(id);
     }
 
+    // Deletes by id list or by creation date, one transaction per chunk of user.delete.chunk-size users. A chunk is
+    // three statements whatever its size, and the chunks committed before a failure stay deleted.
+    @SqlBudget(4)
+    public UserDeleteResultDto deleteUsers(UserDeleteRequest request) {
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        if (byIds == (request.getCreatedBefore() != null)) {
+            throw new IllegalArgumentException("Give either ids or createdBefore to delete users");
+        }
+        long start = System.nanoTime();
+        long users = 0;
+        long passports = 0;
+        int chunks = 0;
+        if (byIds) {
+            List<Long> ids = request.getIds().stream().distinct().toList();
+            for (int from = 0; from < ids.size(); from += deleteChunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + deleteChunkSize, ids.size()));
+                DeletedRows deleted = transactionTemplate.execute(status -> deleteChunk(chunk));
+                users += deleted.users();
+                passports += deleted.passports();
+                chunks++;
+            }
+        } else {
+            // Each chunk deletes the rows the next lookup would return again, so no afterId is needed
+            while (true) {
+                DeletedRows deleted = transactionTemplate.execute(status -> {
+                    List<Long> chunk = userRepository.findIdsCreatedBefore(request.getCreatedBefore(), Limit.of(deleteChunkSize));
+                    return chunk.isEmpty() ? null : deleteChunk(chunk);
+                });
+                if (deleted == null) {
+                    break;
+                }
+                users += deleted.users();
+                passports += deleted.passports();
+                chunks++;
+            }
+        }
+        return new UserDeleteResultDto(users, passports, chunks, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // The passports go with their users, as orphanRemoval on User.passport would do one entity at a time
+    private DeletedRows deleteChunk(List<Long> ids) {
+        List<Long> passportIds = userRepository.findPassportIdsOf(ids);
+        int users = userRepository.deleteAllByIdIn(ids);
+        int passports = passportIds.isEmpty() ? 0 : passportRepository.deleteAllByIdIn(passportIds);
+        ids.forEach(userDtoCache::evict);
+        return new DeletedRows(users, passports);
+    }
+
+    private record DeletedRows(int users, int passports) {
+    }
+
+    // Stays on entities: this is the query the second-level/query cache serves when the cache profile is on
+    @Transactional(readOnly = true)
+    @SqlBudget(1)
     public UserDto fetchUserWithPassport(Long id) {
         User user = userRepository.fetchUserWithPassport(id);
-        return modelMapper.map(user, UserDto.class);
+        return userMapper.toDto(user);
     }
 
-    public List<UserDto> findAllUsersWithPassports() {
-        List<User> allUsersWithPassports = userRepository.findAllUsersWithPassports();
-        return allUsersWithPassports.stream()
-                .map(user -> modelMapper.map(user, UserDto.class))
-                .collect(Collectors.toList());
+    // The same, with the stamp taken from the loaded entity; null for a user without a passport, as above
+    @Transactional(readOnly = true)
+    @SqlBudget(1)
+    public StampedUser fetchStampedUserWithPassport(Long id) {
+        User user = userRepository.fetchUserWithPassport(id);
+        if (user == null) {
+            return null;
+        }
+        return new StampedUser(userMapper.toDto(user), new UserStamp(user.getId(), user.getId(), user.getVersion(),
+                user.getPassport().getVersion(), user.getModifiedAt()));
+    }
+
+    @Transactional(readOnly = true)
+    @SqlBudget(1)
+    public List<UserDto> getUsersPage(Long afterId, int size) {
+        return userRepository.findUserDtosAfter(afterId, pageLimit(size));
+    }
+
+    @Transactional(readOnly = true)
+    @SqlBudget(1)
+    public List<UserDto> getUsersWithPassportsPage(Long afterId, int size) {
+        return userRepository.findUserDtosWithPassportsAfter(afterId, pageLimit(size));
+    }
+
+    // The stream methods hand each row to the sink as soon as it is read, so nothing here grows with the table.
+    @Transactional(readOnly = true)
+    @SqlBudget(1)
+    public void streamAllUsers(Consumer<UserDto> sink) {
+        try (Stream<UserDto> users = userRepository.streamAllUserDtos()) {
+            users.forEach(sink);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @SqlBudget(1)
+    public void streamAllUsersWithPassports(Consumer<UserDto> sink) {
+        try (Stream<UserDto> users = userRepository.streamAllUserDtosWithPassports()) {
+            users.forEach(sink);
+        }
+    }
+
+    // Only the criteria given narrow the search (blank counts as not given); with none it pages through all users
+    // like getUsersPage. One projection query, keyset-paged by id like the other pages.
+    @Transactional(readOnly = true)
+    @SqlBudget(1)
+    public List<UserDto> searchUsers(String nationality, String namePrefix, String email, Long afterId, int size) {
+        List<Specification<User>> criteria = new ArrayList<>();
+        criteria.add(UserSpecifications.idAfter(afterId));
+        if (StringUtils.hasText(nationality)) {
+            criteria.add(UserSpecifications.hasNationality(nationality));
+        }
+        if (StringUtils.hasText(namePrefix)) {
+            criteria.add(UserSpecifications.nameStartsWith(namePrefix));
+        }
+        if (StringUtils.hasText(email)) {
+            criteria.add(UserSpecifications.hasEmail(email));
+        }
+        return userRepository.searchUserDtos(Specification.allOf(criteria), pageLimit(size));
+    }
+
+    private Limit pageLimit(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+        return Limit.of(Math.min(size, MAX_PAGE_SIZE));
     }
 }
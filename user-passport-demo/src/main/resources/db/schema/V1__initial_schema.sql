@@ -0,0 +1,82 @@
+-- Schema for the fast-startup profile, which validates the entities against it instead of generating it.
+-- Each version is applied in order on every start (spring.sql.init.schema-locations), so statements must be
+-- safe to re-run against a database that already has them.
+
+create sequence if not exists users_seq start with 1 increment by 50;
+create sequence if not exists passport_seq start with 1 increment by 50;
+create sequence if not exists import_job_seq start with 1 increment by 1;
+create sequence if not exists expiry_scan_run_seq start with 1 increment by 1;
+create sequence if not exists passport_expiry_seq start with 1 increment by 50;
+
+create table if not exists passport (
+    id bigint not null,
+    passport_number varchar(255) unique,
+    nationality varchar(255),
+    issue_date timestamp(6),
+    expiry_date timestamp(6),
+    version bigint default 0 not null,
+    primary key (id)
+);
+
+create table if not exists users (
+    id bigint not null,
+    name varchar(255),
+    email varchar(255),
+    passport_id bigint unique,
+    created_at timestamp(6),
+    modified_at timestamp(6),
+    version bigint default 0 not null,
+    primary key (id),
+    constraint fk_users_passport foreign key (passport_id) references passport
+);
+
+create table if not exists import_job (
+    id bigint not null,
+    file_name varchar(255),
+    status enum ('COMPLETED','FAILED','RUNNING'),
+    start_line bigint not null,
+    lines_committed bigint not null,
+    imported_count bigint not null,
+    rejected_count bigint not null,
+    failure_message varchar(2000),
+    started_at timestamp(6),
+    finished_at timestamp(6),
+    primary key (id)
+);
+
+create table if not exists import_job_error (
+    import_job_id bigint not null,
+    position integer not null,
+    message varchar(500),
+    primary key (position, import_job_id),
+    constraint fk_import_job_error_job foreign key (import_job_id) references import_job
+);
+
+create table if not exists expiry_scan_run (
+    id bigint not null,
+    window_start timestamp(6),
+    window_end timestamp(6),
+    passports_found bigint not null,
+    chunks integer not null,
+    millis bigint not null,
+    failure_message varchar(2000),
+    started_at timestamp(6),
+    finished_at timestamp(6),
+    primary key (id)
+);
+
+create table if not exists passport_expiry (
+    id bigint not null,
+    run_id bigint,
+    passport_id bigint,
+    user_id bigint,
+    passport_number varchar(255),
+    nationality varchar(255),
+    expiry_date timestamp(6),
+    user_name varchar(255),
+    user_email varchar(255),
+    primary key (id)
+);
+
+create index if not exists idx_passport_expiry_date on passport (expiry_date, id);
+create index if not exists idx_passport_expiry_run on passport_expiry (run_id, expiry_date, passport_id);
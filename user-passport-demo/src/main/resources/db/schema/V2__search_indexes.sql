@@ -0,0 +1,5 @@
+-- Indexes for GET /api/user/search: by nationality, exact email and name prefix.
+
+create index if not exists idx_passport_nationality on passport (nationality);
+create index if not exists idx_users_email on users (email);
+create index if not exists idx_users_name on users (name);
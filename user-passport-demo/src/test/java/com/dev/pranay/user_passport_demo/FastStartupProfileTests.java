@@ -0,0 +1,35 @@
+package com.dev.pranay.user_passport_demo;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A database of its own: the other tests' contexts share the default one, already created by Hibernate.
+// The context only starts if ddl-auto=validate accepts the db/schema scripts for every entity.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:fast-startup")
+@ActiveProfiles("fast-startup")
+class FastStartupProfileTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void schemaComesFromTheVersionedScripts() {
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS"
+                + " WHERE CONSTRAINT_NAME = 'FK_USERS_PASSPORT'", Integer.class));
+
+        UserDto created = userService.createUser(
+                new UserDto(null, "Mira", "mira@example.com", new PassportDto(null, "FS-1", "IN")));
+        assertEquals("FS-1", userService.getUserById(created.getId()).getPassportDto().getPassportNumber());
+    }
+}
@@ -0,0 +1,114 @@
+package com.dev.pranay.user_passport_demo.cache;
+
+import com.dev.pranay.user_passport_demo.dtos.StampedUser;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.dtos.UserStamp;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDtoCacheTests {
+
+    @Test
+    void concurrentMissesForTheSameIdLoadOnce() throws Exception {
+        UserDtoCache cache = new UserDtoCache(100, Duration.ofMinutes(5));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch allWaiting = new CountDownLatch(1);
+        int callers = 16;
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<StampedUser>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> cache.get(1L, id -> {
+                    loads.incrementAndGet();
+                    await(allWaiting);
+                    return stamped(new UserDto(id, "Asha", "asha@example.com", null));
+                })));
+            }
+            // Give every caller time to reach the cache before the single load completes
+            Thread.sleep(200);
+            allWaiting.countDown();
+
+            for (Future<StampedUser> result : results) {
+                assertEquals("Asha", result.get(5, TimeUnit.SECONDS).user().getName());
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void evictForcesTheNextReadToLoadAgain() {
+        UserDtoCache cache = new UserDtoCache(100, Duration.ofMinutes(5));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, id -> stamped(new UserDto(id, "v" + loads.incrementAndGet(), null, null)));
+        cache.evict(1L);
+        StampedUser reloaded = cache.get(1L, id -> stamped(new UserDto(id, "v" + loads.incrementAndGet(), null, null)));
+
+        assertEquals("v2", reloaded.user().getName());
+    }
+
+    @Test
+    void missesAreNotCached() {
+        UserDtoCache cache = new UserDtoCache(100, Duration.ofMinutes(5));
+
+        assertNull(cache.get(1L, id -> null));
+        assertEquals("Asha", cache.get(1L, id -> stamped(new UserDto(id, "Asha", null, null))).user().getName());
+    }
+
+    @Test
+    void anErrorInTheLoaderFailsTheWaitersInsteadOfHangingThem() throws Exception {
+        UserDtoCache cache = new UserDtoCache(100, Duration.ofMinutes(5));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch waiterReady = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<StampedUser> loader = executor.submit(() -> cache.get(1L, id -> {
+                loading.countDown();
+                await(waiterReady);
+                throw new StackOverflowError("Simulated");
+            }));
+            await(loading);
+            Future<StampedUser> waiter = executor.submit(() -> cache.get(1L, id -> fail("Loaded twice")));
+            // Give the waiter time to find the placeholder before the load fails
+            Thread.sleep(200);
+            waiterReady.countDown();
+
+            ExecutionException loaderFailure = assertThrows(ExecutionException.class, () -> loader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, loaderFailure.getCause());
+            ExecutionException waiterFailure = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, waiterFailure.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        // Not cached either
+        assertEquals("Asha", cache.get(1L, id -> stamped(new UserDto(id, "Asha", null, null))).user().getName());
+    }
+
+    private static StampedUser stamped(UserDto user) {
+        return new StampedUser(user, new UserStamp(user.getId(), user.getId(), 0L, null, null));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
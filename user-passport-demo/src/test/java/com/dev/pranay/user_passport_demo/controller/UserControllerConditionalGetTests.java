@@ -0,0 +1,143 @@
+package com.dev.pranay.user_passport_demo.controller;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.metrics.SqlStatementCounter;
+import com.dev.pranay.user_passport_demo.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserControllerConditionalGetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void matchingETagAnswers304FromTheCachedUser() throws Exception {
+        Long id = userService.createUser(new UserDto(null, "Ada", "ada@example.com", new PassportDto(null, "ETAG-1", "IN"))).getId();
+
+        String eTag = mockMvc.perform(get("/api/user/{id}", id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        // The first GET cached the user together with its stamp
+        long before = SqlStatementCounter.currentCount();
+        mockMvc.perform(get("/api/user/{id}", id).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        assertEquals(0, SqlStatementCounter.currentCount() - before);
+        assertEquals(eTag, userService.getUserStamp(id).eTag());
+
+        // A passport-only change through JPA leaves users.modified_at alone but not the passport's version
+        userService.createOrUpdateUser(new UserDto(id, "Ada", "ada@example.com", new PassportDto(null, "ETAG-1", "FR")));
+        String changed = mockMvc.perform(get("/api/user/{id}", id).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, changed);
+    }
+
+    @Test
+    void collectionETagChangesWhenAUserIsAdded() throws Exception {
+        userService.createUser(new UserDto(null, "Bo", "bo@example.com", null));
+        String eTag = allETag();
+        String lastModified = mockMvc.perform(get("/api/user/all").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        assertNotNull(lastModified);
+
+        userService.createUser(new UserDto(null, "Cy", "cy@example.com", null));
+        mockMvc.perform(get("/api/user/all").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    // Same count, same version sums: only the new row's id and modified_at tell the two collections apart
+    @Test
+    void collectionETagChangesWhenAUserIsReplacedByAnother() throws Exception {
+        Long id = userService.createUser(new UserDto(null, "Di", "di@example.com", null)).getId();
+        String eTag = allETag();
+
+        userService.deleteUser(id);
+        userService.createUser(new UserDto(null, "Ed", "ed@example.com", null));
+        String changed = mockMvc.perform(get("/api/user/all").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, changed);
+    }
+
+    // Without a conditional header the full-table stamp isn't worth computing
+    @Test
+    void unconditionalCollectionRequestsSkipTheStamp() throws Exception {
+        userService.createUser(new UserDto(null, "Gil", "gil@example.com", null));
+        long before = SqlStatementCounter.currentCount();
+        String eTag = mockMvc.perform(get("/api/user/all/page").param("size", "50"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals(1, SqlStatementCounter.currentCount() - before);
+        assertNotNull(eTag);
+
+        MvcResult all = mockMvc.perform(get("/api/user/all")).andReturn();
+        mockMvc.perform(asyncDispatch(all)).andExpect(status().isOk());
+        assertNull(all.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void pageETagOnlyChangesWithTheRowsOnThePage() throws Exception {
+        Long first = userService.createUser(new UserDto(null, "Hal", "hal@example.com", null)).getId();
+        userService.createUser(new UserDto(null, "Ida", "ida@example.com", null));
+        Long third = userService.createUser(new UserDto(null, "Jo", "jo@example.com", null)).getId();
+        String eTag = mockMvc.perform(get("/api/user/all/page").param("afterId", String.valueOf(first - 1)).param("size", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // A user after the page changes: still 304
+        userService.createOrUpdateUser(new UserDto(third, "Jo B", "jo@example.com", null));
+        mockMvc.perform(get("/api/user/all/page").param("afterId", String.valueOf(first - 1)).param("size", "2")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        // One on it does
+        userService.createOrUpdateUser(new UserDto(first, "Hal B", "hal@example.com", null));
+        mockMvc.perform(get("/api/user/all/page").param("afterId", String.valueOf(first - 1)).param("size", "2")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void putWithAStaleIfMatchAnswers412() throws Exception {
+        Long id = userService.createUser(new UserDto(null, "Fay", "fay@example.com", null)).getId();
+        String eTag = mockMvc.perform(get("/api/user/{id}", id))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(put("/api/user/{id}", id).header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Fay A\", \"email\": \"fay@example.com\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/user/{id}", id).header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"Fay B\", \"email\": \"fay@example.com\"}"))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals("Fay A", userService.getUserById(id).getName());
+    }
+
+    // The collection's validators come with a conditional request; an ETag that matches nothing gets them
+    private String allETag() throws Exception {
+        return mockMvc.perform(get("/api/user/all").header(HttpHeaders.IF_NONE_MATCH, "\"none\""))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,61 @@
+package com.dev.pranay.user_passport_demo.controller;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The streamed responses are the documents the list responses were, written row by row
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserControllerStreamingTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void arrayAndNdjsonCarryTheSameUsers() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            userService.createUser(new UserDto(null, "Stream " + i, "stream" + i + "@example.com",
+                    new PassportDto(null, "STR-" + i, "IN")));
+        }
+        List<UserDto> expected = new ArrayList<>();
+        userService.streamAllUsersWithPassports(expected::add);
+
+        String array = body("/api/user/fetchAll");
+        assertEquals(expected, List.of(objectMapper.readValue(array, UserDto[].class)));
+
+        List<UserDto> lines = new ArrayList<>();
+        for (String line : body("/api/user/fetchAll/stream").split("\n")) {
+            lines.add(objectMapper.readValue(line, UserDto.class));
+        }
+        assertEquals(expected, lines);
+    }
+
+    private String body(String path) throws Exception {
+        MvcResult result = mockMvc.perform(get(path)).andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+}
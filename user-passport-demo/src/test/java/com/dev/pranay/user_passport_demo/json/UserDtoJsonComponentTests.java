@@ -0,0 +1,34 @@
+package com.dev.pranay.user_passport_demo.json;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JsonTest
+class UserDtoJsonComponentTests {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void writesExactlyWhatTheReflectionBasedSerializerWrites() throws Exception {
+        ObjectMapper reflective = new ObjectMapper();
+        List<UserDto> users = List.of(
+                new UserDto(1L, "Ana \"A\" Lima", "ana@example.com", new PassportDto(7L, "P-1", "BR")),
+                new UserDto(2L, "Ben", null, null),
+                new UserDto(null, null, "x@example.com", new PassportDto(null, null, null)));
+
+        assertEquals(reflective.writeValueAsString(users), objectMapper.writeValueAsString(users));
+        PassportDto passport = new PassportDto(3L, "P-3", "IN");
+        assertEquals(reflective.writeValueAsString(passport), objectMapper.writeValueAsString(passport));
+        assertInstanceOf(UserDtoJsonComponent.UserDtoSerializer.class,
+                objectMapper.getSerializerProviderInstance().findValueSerializer(UserDto.class));
+    }
+}
@@ -0,0 +1,133 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.ExpiringPassportDto;
+import com.dev.pranay.user_passport_demo.dtos.ExpiryScanRunDto;
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.models.Passport;
+import com.dev.pranay.user_passport_demo.repository.PassportExpiryRepository;
+import com.dev.pranay.user_passport_demo.repository.PassportRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = {"passport.expiry-scan.chunk-size=2", "passport.expiry-scan.cron=-",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.dev.pranay.user_passport_demo.service.PassportExpiryScanServiceTests$CapturingStatementInspector"})
+class PassportExpiryScanServiceTests {
+
+    @Autowired
+    private PassportExpiryScanService passportExpiryScanService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PassportRepository passportRepository;
+
+    @MockitoSpyBean
+    private PassportExpiryRepository passportExpiryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void scanWritesPassportsExpiringInTheWindowInExpiryOrder() {
+        LocalDateTime now = LocalDateTime.now();
+        createWithExpiry("EXP-1", now.plusDays(30));
+        createWithExpiry("EXP-2", now.plusDays(5));
+        createWithExpiry("EXP-3", now.plusDays(60));
+        createWithExpiry("EXP-4", now.plusDays(5));
+        createWithExpiry("EXP-5", now.plusDays(200));
+        createWithExpiry("EXP-6", now.minusDays(1));
+
+        ExpiryScanRunDto run = passportExpiryScanService.scan();
+
+        assertEquals("COMPLETED", run.getStatus());
+        assertEquals(4, run.getPassportsFound());
+        assertEquals(2, run.getChunks());
+        List<ExpiringPassportDto> expiring = passportExpiryScanService.getExpiringPassports(null, 0L, 10);
+        assertEquals(List.of("EXP-2", "EXP-4", "EXP-1", "EXP-3"),
+                expiring.stream().map(ExpiringPassportDto::getPassportNumber).toList());
+        assertEquals("holder-EXP-1", expiring.get(2).getUserName());
+
+        // A second run replaces the first one's rows
+        assertEquals(4, passportExpiryScanService.scan().getPassportsFound());
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM passport_expiry", Long.class));
+
+        // Next page after the second row; EXP-2 and EXP-4 share an expiry date, so the passport id breaks the tie
+        ExpiringPassportDto second = expiring.get(1);
+        assertEquals(List.of("EXP-1", "EXP-3"), passportExpiryScanService
+                .getExpiringPassports(second.getExpiryDate(), second.getPassportId(), 10).stream()
+                .map(ExpiringPassportDto::getPassportNumber)
+                .toList());
+    }
+
+    @Test
+    void anErrorDuringTheScanStillMarksTheRunFailed() {
+        // Thrown as the finished run replaces the previous one
+        doThrow(new StackOverflowError("Simulated")).when(passportExpiryRepository).deleteOtherRuns(anyLong());
+
+        assertThrows(StackOverflowError.class, () -> passportExpiryScanService.scan());
+
+        ExpiryScanRunDto run = passportExpiryScanService.getLatestRun();
+        assertEquals("FAILED", run.getStatus());
+        assertEquals("Scan aborted", run.getFailureMessage());
+        assertNotNull(run.getFinishedAt());
+    }
+
+    @Test
+    void rangeQueryUsesTheExpiryIndex() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plusDays(90);
+        CapturingStatementInspector.STATEMENTS.clear();
+        passportRepository.findExpiringAfter(now, 0L, until, Limit.of(1000));
+        List<String> statements = CapturingStatementInspector.STATEMENTS.stream()
+                .filter(statement -> statement.contains("expiry_date"))
+                .toList();
+        assertEquals(1, statements.size(), statements.toString());
+
+        // The statement Hibernate sent, with its parameters in the order the JPQL names them
+        String sql = statements.get(0);
+        assertEquals(5, sql.chars().filter(c -> c == '?').count(), sql);
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, now, until, now, 0L, 1000);
+        assertTrue(plan.toUpperCase().contains("IDX_PASSPORT_EXPIRY_DATE"), plan);
+        // Rows come off the index in ORDER BY order, no sort step
+        assertTrue(plan.contains("index sorted"), plan);
+    }
+
+    private void createWithExpiry(String passportNumber, LocalDateTime expiryDate) {
+        userService.createUser(new UserDto(null, "holder-" + passportNumber, passportNumber.toLowerCase() + "@example.com",
+                new PassportDto(null, passportNumber, "IN")));
+        Passport passport = passportRepository.findAll().stream()
+                .filter(p -> passportNumber.equals(p.getPassportNumber()))
+                .findFirst()
+                .orElseThrow();
+        passport.setExpiryDate(expiryDate);
+        passportRepository.save(passport);
+    }
+
+    // Records the SQL Hibernate prepares, so the plan test explains the real statement rather than a copy of it
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.ExportFileDto;
+import com.dev.pranay.user_passport_demo.dtos.ExportResultDto;
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.export.ExportedUser;
+import com.dev.pranay.user_passport_demo.export.UserExportReader;
+import com.dev.pranay.user_passport_demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest
+class UserExportServiceTests {
+
+    @TempDir
+    static Path exportDirectory;
+
+    @DynamicPropertySource
+    static void exportProperties(DynamicPropertyRegistry registry) {
+        registry.add("user.export.directory", exportDirectory::toString);
+    }
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoSpyBean
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void partitionedExportReadsBackEveryRow() throws IOException {
+        List<UserDto> batch = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            PassportDto passport = i % 5 == 0 ? null : new PassportDto(null, "EXP-" + i, "IN");
+            batch.add(new UserDto(null, "Export " + i, "export" + i + "@example.com", passport));
+        }
+        userService.createUsers(batch);
+
+        ExportResultDto result = userExportService.exportAll(3);
+
+        assertEquals(3, result.getFiles().size());
+        assertEquals(userRepository.count(), result.getTotalRows());
+
+        List<ExportedUser> rows = new ArrayList<>();
+        for (ExportFileDto file : result.getFiles()) {
+            try (UserExportReader reader = new UserExportReader(exportDirectory.resolve(file.getFile()), 65536)) {
+                for (ExportedUser row = reader.next(); row != null; row = reader.next()) {
+                    assertTrue(row.id() >= file.getFromId() && row.id() < file.getToId());
+                    rows.add(row);
+                }
+            }
+        }
+        assertEquals(result.getTotalRows(), rows.size());
+
+        ExportedUser withPassport = rows.stream().filter(row -> "Export 1".equals(row.name())).findFirst().orElseThrow();
+        assertEquals("EXP-1", withPassport.passportNumber());
+        assertNotNull(withPassport.createdAt());
+        assertNotNull(withPassport.expiryDate());
+        ExportedUser withoutPassport = rows.stream().filter(row -> "Export 0".equals(row.name())).findFirst().orElseThrow();
+        assertNull(withoutPassport.passportId());
+    }
+
+    @Test
+    void failedExportLeavesNoFilesBehind() throws IOException {
+        List<UserDto> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new UserDto(null, "Aborted " + i, "aborted" + i + "@example.com", null));
+        }
+        userService.createUsers(batch);
+
+        // The 50th row streamed by any partition fails, the other partitions may well complete
+        AtomicInteger streamed = new AtomicInteger();
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            return jdbcTemplate.query((PreparedStatementCreator) invocation.getArgument(0), (ResultSetExtractor<Object>) rows -> {
+                while (rows.next()) {
+                    if (streamed.incrementAndGet() == 50) {
+                        throw new IllegalStateException("Simulated failure");
+                    }
+                    handler.processRow(rows);
+                }
+                return null;
+            });
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        List<Path> before = listExports();
+        assertThrows(IllegalStateException.class, () -> userExportService.exportAll(3));
+        assertEquals(before, listExports());
+    }
+
+    @Test
+    void rejectsMorePartitionsThanConfigured() {
+        assertThrows(IllegalArgumentException.class, () -> userExportService.exportAll(9));
+        assertThrows(IllegalArgumentException.class, () -> userExportService.exportAll(0));
+    }
+
+    private static List<Path> listExports() throws IOException {
+        try (Stream<Path> files = Files.list(exportDirectory)) {
+            return files.sorted().toList();
+        }
+    }
+}
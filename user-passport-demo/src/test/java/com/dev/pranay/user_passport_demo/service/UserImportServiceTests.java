@@ -0,0 +1,89 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.ImportJobDto;
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "user.import.chunk-size=2")
+class UserImportServiceTests {
+
+    @TempDir
+    static Path importDirectory;
+
+    @DynamicPropertySource
+    static void importProperties(DynamicPropertyRegistry registry) {
+        registry.add("user.import.directory", importDirectory::toString);
+    }
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void csvImportRejectsDuplicateAndMalformedLines() throws IOException {
+        userService.createUser(new UserDto(null, "Existing", "existing@example.com", new PassportDto(null, "IMP-0", "IN")));
+        Files.write(importDirectory.resolve("users.csv"), List.of(
+                "name,email,passportNumber,nationality",
+                "Anil,anil@example.com,IMP-1,IN",
+                "Bea,bea@example.com,IMP-0,US",
+                "Cora,cora@example.com,IMP-2,FR",
+                "Dan,dan@example.com,IMP-2,IN",
+                "broken,line,with,too,many,columns",
+                ",nobody@example.com,IMP-3,IN"));
+
+        ImportJobDto job = userImportService.run(userImportService.createJob("users.csv").getId());
+
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals(6, job.getLinesCommitted());
+        assertEquals(2, job.getImportedCount());
+        assertEquals(4, job.getRejectedCount());
+        assertTrue(job.getErrors().get(0).startsWith("line 2: passportNumber IMP-0 already exists"));
+        assertTrue(job.getErrors().get(1).startsWith("line 4: passportNumber IMP-2 appears earlier"));
+        assertTrue(job.getErrors().get(2).startsWith("line 5: malformed record"));
+        assertTrue(job.getErrors().get(3).startsWith("line 6: name and email are required"));
+    }
+
+    @Test
+    void failedImportResumesAfterTheLastCommittedChunk() throws IOException {
+        Path file = importDirectory.resolve("users.ndjson");
+        // Line 5 overflows users.name, so the third chunk (lines 5-6) fails in the database
+        Files.write(file, List.of(
+                ndjson("R1"), ndjson("R2"), ndjson("R3"), ndjson("R4"), ndjson("X".repeat(300)), ndjson("R6")));
+
+        Long jobId = userImportService.createJob("users.ndjson").getId();
+        ImportJobDto failed = userImportService.run(jobId);
+        assertEquals("FAILED", failed.getStatus());
+        assertEquals(4, failed.getLinesCommitted());
+        assertEquals(4, failed.getImportedCount());
+        assertNotNull(failed.getFailureMessage());
+
+        Files.write(file, List.of(
+                ndjson("R1"), ndjson("R2"), ndjson("R3"), ndjson("R4"), ndjson("R5"), ndjson("R6")));
+        ImportJobDto resumed = userImportService.run(jobId);
+        assertEquals("COMPLETED", resumed.getStatus());
+        assertEquals(6, resumed.getLinesCommitted());
+        // R1-R4 were not imported a second time
+        assertEquals(6, resumed.getImportedCount());
+        assertEquals(0, resumed.getRejectedCount());
+    }
+
+    private static String ndjson(String name) {
+        return "{\"name\":\"" + name + "\",\"email\":\"" + name.toLowerCase() + "@example.com\","
+                + "\"passportDto\":{\"passportNumber\":\"NDJ-" + name.hashCode() + "\",\"nationality\":\"IN\"}}";
+    }
+}
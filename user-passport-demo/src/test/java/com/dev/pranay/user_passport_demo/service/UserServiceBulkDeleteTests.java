@@ -0,0 +1,94 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDeleteRequest;
+import com.dev.pranay.user_passport_demo.dtos.UserDeleteResultDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.metrics.SqlStatementCounter;
+import com.dev.pranay.user_passport_demo.repository.PassportRepository;
+import com.dev.pranay.user_passport_demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A database of its own: deleting by creation date takes every older user with it, not just this test's
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:bulk-delete", "user.delete.chunk-size=2"})
+class UserServiceBulkDeleteTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PassportRepository passportRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void deletesUsersAndTheirPassportsByIdInChunks() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            PassportDto passport = i % 2 == 0 ? new PassportDto(null, "DEL-" + i, "IN") : null;
+            ids.add(userService.createUser(new UserDto(null, "del-" + i, "del-" + i + "@example.com", passport)).getId());
+        }
+        userService.getUserById(ids.get(0));
+        List<Long> toDelete = new ArrayList<>(ids.subList(0, 4));
+        toDelete.add(Long.MAX_VALUE);
+
+        long before = SqlStatementCounter.currentCount();
+        UserDeleteResultDto result = userService.deleteUsers(new UserDeleteRequest(toDelete, null));
+
+        // Passport ids, DELETE users, DELETE passport per chunk of two ids; the last chunk has no passport to delete
+        assertEquals(3 + 3 + 2, SqlStatementCounter.currentCount() - before);
+        assertEquals(4, result.getUsersDeleted());
+        assertEquals(2, result.getPassportsDeleted());
+        assertEquals(3, result.getChunks());
+        assertTrue(userRepository.findAllById(ids.subList(0, 4)).isEmpty());
+        assertTrue(passportRepository.findExistingPassportNumbers(List.of("DEL-0", "DEL-2")).isEmpty());
+        assertEquals(List.of("DEL-4"), List.copyOf(passportRepository.findExistingPassportNumbers(List.of("DEL-4"))));
+        // The cached DTO went with the row
+        assertThrows(RuntimeException.class, () -> userService.getUserById(ids.get(0)));
+    }
+
+    @Test
+    void deletesUsersCreatedBeforeACutOff() throws InterruptedException {
+        List<Long> old = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            PassportDto passport = i == 0 ? new PassportDto(null, "DEL-OLD", "IN") : null;
+            old.add(userService.createUser(new UserDto(null, "old-" + i, "old-" + i + "@example.com", passport)).getId());
+        }
+        Thread.sleep(20);
+        LocalDateTime cutOff = LocalDateTime.now();
+        Thread.sleep(20);
+        Long recent = userService.createUser(new UserDto(null, "recent", "recent@example.com", new PassportDto(null, "DEL-NEW", "IN"))).getId();
+
+        UserDeleteResultDto result = userService.deleteUsers(new UserDeleteRequest(null, cutOff));
+
+        assertEquals(3, result.getUsersDeleted());
+        assertEquals(1, result.getPassportsDeleted());
+        assertEquals(2, result.getChunks());
+        assertTrue(userRepository.findAllById(old).isEmpty());
+        assertTrue(userRepository.existsById(recent));
+        assertTrue(passportRepository.findExistingPassportNumbers(List.of("DEL-OLD")).isEmpty());
+        assertEquals(List.of("DEL-NEW"), List.copyOf(passportRepository.findExistingPassportNumbers(List.of("DEL-NEW"))));
+    }
+
+    @Test
+    void needsEitherIdsOrACutOff() {
+        assertThrows(IllegalArgumentException.class, () -> userService.deleteUsers(new UserDeleteRequest()));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.deleteUsers(new UserDeleteRequest(List.of(1L), LocalDateTime.now())));
+    }
+}
@@ -0,0 +1,112 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Many threads updating the same user. Every update that returns must have committed exactly one new version:
+// a lost update would show up as fewer version bumps than successful calls. Conditional ones (If-Match) may be
+// rejected instead, but never applied on top of a version their writer didn't read.
+@SpringBootTest(properties = {"user.update.max-attempts=50", "user.update.backoff=1ms"})
+class UserServiceConcurrencyTests {
+
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 25;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void concurrentReadModifyWriteUpdatesAreNotLost() throws Exception {
+        Long id = userService.createUser(
+                new UserDto(null, "Sam", "sam@example.com", new PassportDto(null, "OPT-1", "IN"))).getId();
+        long versionBefore = userRepository.findById(id).orElseThrow().getVersion();
+
+        hammer(update -> userService.createOrUpdateUser(
+                new UserDto(id, "Sam " + update, "sam@example.com", new PassportDto(null, "OPT-1", update % 2 == 0 ? "IN" : "US"))));
+
+        assertEquals(versionBefore + THREADS * UPDATES_PER_THREAD, userRepository.findById(id).orElseThrow().getVersion());
+    }
+
+    @Test
+    void staleConditionalUpsertIsRejected() {
+        Long id = userService.createUser(
+                new UserDto(null, "Tia", "tia@example.com", new PassportDto(null, "OPT-2", "IN"))).getId();
+        String eTag = userService.getUserStamp(id).eTag();
+
+        userService.createOrUpdateUser(id, new UserDto(null, "Tia A", "tia@example.com", new PassportDto(null, "OPT-2", "FR")), eTag);
+        // Read the same version, wrote after the first writer
+        assertThrows(StaleUserException.class, () -> userService.createOrUpdateUser(id,
+                new UserDto(null, "Tia B", "tia@example.com", new PassportDto(null, "OPT-2", "US")), eTag));
+
+        UserDto current = userService.getUserById(id);
+        assertEquals("Tia A", current.getName());
+        assertEquals("FR", current.getPassportDto().getNationality());
+    }
+
+    @Test
+    void concurrentConditionalUpsertsOnlyApplyToTheVersionTheyRead() throws Exception {
+        Long id = userService.createUser(
+                new UserDto(null, "Uma", "uma@example.com", new PassportDto(null, "OPT-3", "IN"))).getId();
+        long versionBefore = userRepository.findById(id).orElseThrow().getVersion();
+
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        hammer(update -> {
+            String eTag = userService.getUserStamp(id).eTag();
+            try {
+                userService.createOrUpdateUser(id,
+                        new UserDto(null, "Uma " + update, "uma@example.com", new PassportDto(null, "OPT-3", "FR")), eTag);
+                accepted.incrementAndGet();
+            } catch (StaleUserException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        // Every accepted write is exactly one version on top of the one its writer read
+        assertEquals(THREADS * UPDATES_PER_THREAD, accepted.get() + rejected.get());
+        assertEquals(versionBefore + accepted.get(), userRepository.findById(id).orElseThrow().getVersion());
+    }
+
+    private void hammer(Consumer<Integer> update) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int first = thread * UPDATES_PER_THREAD;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                    update.accept(first + i);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            // Any update that ran out of attempts fails the test here
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserServiceProjectionTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void readPathsBuildDtosWithoutLoadingEntities() {
+        UserDto withPassport = userService.createUser(
+                new UserDto(null, "Ravi", "ravi@example.com", new PassportDto(null, "PRJ-1", "IN")));
+        UserDto withoutPassport = userService.createUser(new UserDto(null, "Mia", "mia@example.com", null));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        UserDto loaded = userService.getUserById(withPassport.getId());
+        assertEquals("Ravi", loaded.getName());
+        assertEquals("PRJ-1", loaded.getPassportDto().getPassportNumber());
+        assertEquals("IN", loaded.getPassportDto().getNationality());
+        assertNull(userService.getUserById(withoutPassport.getId()).getPassportDto());
+
+        List<UserDto> all = new ArrayList<>();
+        userService.streamAllUsersWithPassports(all::add);
+        assertTrue(all.stream().anyMatch(user -> user.getId().equals(withPassport.getId())));
+        assertTrue(all.stream().noneMatch(user -> user.getId().equals(withoutPassport.getId())));
+        assertEquals(List.of(withPassport.getId(), withoutPassport.getId()),
+                userService.getUsersPage(withPassport.getId() - 1, 2).stream().map(UserDto::getId).toList());
+
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void cachedReadsTakeNoConnection() {
+        Long id = userService.createUser(new UserDto(null, "Noor", "noor@example.com", null)).getId();
+        userService.getUserById(id);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertEquals("Noor", userService.getUserById(id).getName());
+
+        assertEquals(0, statistics.getConnectCount());
+        assertEquals(0, statistics.getTransactionCount());
+    }
+}
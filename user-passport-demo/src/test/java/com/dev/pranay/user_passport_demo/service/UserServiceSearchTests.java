@@ -0,0 +1,58 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.metrics.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The test database is shared with the other test classes, so the names and nationalities here are their own
+@SpringBootTest
+class UserServiceSearchTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void criteriaCombineAndPagesFollowTheId() {
+        List<UserDto> batch = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            batch.add(new UserDto(null, (i % 2 == 0 ? "Srch_even " : "Srch_odd ") + i, "srch" + i + "@example.com",
+                    i % 3 == 0 ? null : new PassportDto(null, "SRCH-" + i, i % 3 == 1 ? "QX" : "QY")));
+        }
+        List<UserDto> created = userService.createUsers(batch);
+
+        List<UserDto> qx = created.stream()
+                .filter(user -> user.getPassportDto() != null && user.getPassportDto().getNationality().equals("QX"))
+                .toList();
+        long before = SqlStatementCounter.currentCount();
+        assertEquals(qx, userService.searchUsers("QX", null, null, 0L, 100));
+        assertEquals(1, SqlStatementCounter.currentCount() - before);
+
+        // Keyset pages of two, then nothing after the last one
+        List<UserDto> paged = new ArrayList<>();
+        Long afterId = 0L;
+        for (List<UserDto> page = userService.searchUsers("QX", null, null, afterId, 2); !page.isEmpty();
+             page = userService.searchUsers("QX", null, null, afterId, 2)) {
+            paged.addAll(page);
+            afterId = page.getLast().getId();
+        }
+        assertEquals(qx, paged);
+
+        // Users without a passport are found by the user criteria, the prefix's _ is not a wildcard
+        List<UserDto> even = userService.searchUsers(null, "Srch_even", null, 0L, 100);
+        assertEquals(6, even.size());
+        assertTrue(even.stream().anyMatch(user -> user.getPassportDto() == null));
+        assertTrue(userService.searchUsers(null, "Srch_", null, 0L, 100).size() >= 12);
+        assertTrue(userService.searchUsers(null, "SrchXeven", null, 0L, 100).isEmpty());
+
+        assertEquals(List.of(created.get(4)), userService.searchUsers("QX", "Srch_even", "srch4@example.com", 0L, 100));
+        assertTrue(userService.searchUsers("QY", null, "srch4@example.com", 0L, 100).isEmpty());
+    }
+}
@@ -0,0 +1,47 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("cache")
+class UserServiceSecondLevelCacheTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void writesEvictStaleEntriesFromTheCache() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        UserDto created = userService.createUser(
+                new UserDto(null, "Asha", "asha@example.com", new PassportDto(null, "L2-1", "IN")));
+        Long id = created.getId();
+
+        userService.fetchUserWithPassport(id);
+        long queryHits = statistics.getQueryCacheHitCount();
+        assertEquals("Asha", userService.fetchUserWithPassport(id).getName());
+        assertEquals(queryHits + 1, statistics.getQueryCacheHitCount());
+
+        userService.createOrUpdateUser(id, new UserDto(id, "Asha K", "asha@example.com", new PassportDto(null, "L2-2", "FR")));
+        UserDto updated = userService.fetchUserWithPassport(id);
+        assertEquals("Asha K", updated.getName());
+        assertEquals("L2-2", updated.getPassportDto().getPassportNumber());
+        assertEquals("FR", userService.getUserById(id).getPassportDto().getNationality());
+
+        userService.deleteUser(id);
+        assertNull(userService.fetchUserWithPassport(id));
+        assertThrows(RuntimeException.class, () -> userService.getUserById(id));
+    }
+}
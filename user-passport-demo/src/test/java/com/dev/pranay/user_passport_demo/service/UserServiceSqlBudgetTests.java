@@ -0,0 +1,83 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.SqlBudgetStatsDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.metrics.SqlBudgetGuard;
+import com.dev.pranay.user_passport_demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The budgets themselves are enforced for every test (src/test/resources/config/application.properties); this
+// checks the guard does fail, and that the list reads stay at one statement with several users and passports.
+@SpringBootTest
+class UserServiceSqlBudgetTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SqlBudgetGuard sqlBudgetGuard;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void listReadsRunOneStatementWhateverTheNumberOfUsers() throws Throwable {
+        Long first = null;
+        for (int i = 0; i < 5; i++) {
+            UserDto user = userService.createUser(new UserDto(null, "Budget " + i, "budget" + i + "@example.com",
+                    i == 0 ? null : new PassportDto(null, "BDG-" + i, "IN")));
+            first = first == null ? user.getId() : first;
+        }
+
+        userService.getUsersPage(first - 1, 5);
+        userService.getUsersWithPassportsPage(first - 1, 5);
+        userService.streamAllUsers(user -> { });
+        userService.streamAllUsersWithPassports(user -> { });
+        userService.fetchUserWithPassport(first + 1);
+        // The JOIN FETCH UserRepository.findAllUsersWithPassports documents as its N+1 protection
+        sqlBudgetGuard.watch("UserRepository.findAllUsersWithPassports()", 1,
+                () -> transactionTemplate.execute(status -> userRepository.findAllUsersWithPassports()));
+
+        Map<String, SqlBudgetStatsDto> statistics = sqlBudgetGuard.getStatistics().stream()
+                .collect(Collectors.toMap(SqlBudgetStatsDto::getMethod, Function.identity()));
+        for (String method : List.of("getUsersPage(Long,int)",
+                "getUsersWithPassportsPage(Long,int)", "streamAllUsers(Consumer)", "streamAllUsersWithPassports(Consumer)",
+                "fetchUserWithPassport(Long)", "UserRepository.findAllUsersWithPassports()")) {
+            assertEquals(1, statistics.get(method).getMaxStatements(), method);
+            assertEquals(0, statistics.get(method).getOverBudget(), method);
+        }
+    }
+
+    @Test
+    void aTransactionOverItsBudgetFailsTheCall() {
+        userService.createUser(new UserDto(null, "Noor", "noor@example.com", null));
+
+        // One query per user after the list query, counted at the JDBC level, so JdbcTemplate is seen too
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> sqlBudgetGuard.watch("nPlusOne()", 1,
+                () -> transactionTemplate.execute(status -> {
+                    for (Long id : jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id LIMIT 3", Long.class)) {
+                        jdbcTemplate.queryForObject("SELECT name FROM users WHERE id = ?", String.class, id);
+                    }
+                    return null;
+                })));
+        assertTrue(e.getMessage().contains("nPlusOne()"), e.getMessage());
+    }
+}
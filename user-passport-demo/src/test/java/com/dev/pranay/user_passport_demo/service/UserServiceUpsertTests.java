@@ -0,0 +1,96 @@
+package com.dev.pranay.user_passport_demo.service;
+
+import com.dev.pranay.user_passport_demo.dtos.PassportDto;
+import com.dev.pranay.user_passport_demo.dtos.UserDto;
+import com.dev.pranay.user_passport_demo.metrics.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserServiceUpsertTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void updatingAnExistingUserTakesOneStatement() {
+        UserDto created = userService.createUser(
+                new UserDto(null, "Noor", "noor@example.com", new PassportDto(null, "UPS-1", "IN")));
+        Long id = created.getId();
+        userService.getUserById(id);
+
+        long before = SqlStatementCounter.currentCount();
+        UserDto updated = userService.createOrUpdateUser(id,
+                new UserDto(null, "Noor A", "noor.a@example.com", new PassportDto(null, "UPS-2", "AE")));
+        assertEquals(1, SqlStatementCounter.currentCount() - before);
+
+        assertEquals(created.getPassportDto().getId(), updated.getPassportDto().getId());
+        // Read back through the DTO cache, which the upsert has to have evicted
+        UserDto reloaded = userService.getUserById(id);
+        assertEquals("Noor A", reloaded.getName());
+        assertEquals("noor.a@example.com", reloaded.getEmail());
+        assertEquals("UPS-2", reloaded.getPassportDto().getPassportNumber());
+        assertEquals("AE", reloaded.getPassportDto().getNationality());
+    }
+
+    @Test
+    void nameOnlyUpdateKeepsThePassport() {
+        UserDto created = userService.createUser(
+                new UserDto(null, "Omar", "omar@example.com", new PassportDto(null, "UPS-3", "EG")));
+
+        long before = SqlStatementCounter.currentCount();
+        UserDto updated = userService.createOrUpdateUser(created.getId(), new UserDto(null, "Omar B", "omar@example.com", null));
+        assertEquals(1, SqlStatementCounter.currentCount() - before);
+        assertEquals("UPS-3", updated.getPassportDto().getPassportNumber());
+
+        UserDto withoutPassport = userService.createUser(new UserDto(null, "Pia", "pia@example.com", null));
+        assertNull(userService.createOrUpdateUser(withoutPassport.getId(),
+                new UserDto(null, "Pia C", "pia@example.com", null)).getPassportDto());
+    }
+
+    @Test
+    void missingRowsFallBackToTheJpaPath() {
+        UserDto withoutPassport = userService.createUser(new UserDto(null, "Quinn", "quinn@example.com", null));
+        UserDto firstPassport = userService.createOrUpdateUser(withoutPassport.getId(),
+                new UserDto(null, "Quinn", "quinn@example.com", new PassportDto(null, "UPS-4", "NZ")));
+        assertNotNull(firstPassport.getPassportDto().getId());
+        assertEquals("UPS-4", userService.getUserById(withoutPassport.getId()).getPassportDto().getPassportNumber());
+
+        UserDto createdFromUpdate = userService.createOrUpdateUser(Long.MAX_VALUE,
+                new UserDto(null, "Rae", "rae@example.com", null));
+        assertNotEquals(Long.MAX_VALUE, createdFromUpdate.getId());
+        assertEquals("Rae", userService.getUserById(createdFromUpdate.getId()).getName());
+    }
+
+    @Test
+    void patchWritesOnlyWhatChanged() {
+        UserDto created = userService.createUser(
+                new UserDto(null, "Sami", "sami@example.com", new PassportDto(null, "UPS-5", "FI")));
+        Long id = created.getId();
+        userService.getUserById(id);
+
+        // The load and one UPDATE of users; the passport isn't written
+        long before = SqlStatementCounter.currentCount();
+        UserDto patched = userService.patchUser(id, new UserDto(null, null, "sami.k@example.com", null));
+        assertEquals(2, SqlStatementCounter.currentCount() - before);
+        assertEquals(new UserDto(id, "Sami", "sami.k@example.com", created.getPassportDto()), patched);
+        assertEquals(patched, userService.getUserById(id));
+
+        // Nothing changed, nothing written
+        before = SqlStatementCounter.currentCount();
+        userService.patchUser(id, new UserDto(null, "Sami", null, new PassportDto(null, null, "FI")));
+        assertEquals(1, SqlStatementCounter.currentCount() - before);
+
+        UserDto nationality = userService.patchUser(id, new UserDto(null, null, null, new PassportDto(null, null, "SE")));
+        assertEquals(new PassportDto(created.getPassportDto().getId(), "UPS-5", "SE"), nationality.getPassportDto());
+
+        UserDto withoutPassport = userService.createUser(new UserDto(null, "Tao", "tao@example.com", null));
+        UserDto firstPassport = userService.patchUser(withoutPassport.getId(),
+                new UserDto(null, null, null, new PassportDto(null, "UPS-6", "CN")));
+        assertNotNull(firstPassport.getPassportDto().getId());
+        assertEquals("tao@example.com", firstPassport.getEmail());
+    }
+}
@@ -0,0 +1,157 @@
+package com.dev.pranay.user_passport_loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One of the applications in a JVM of its own, so the load generator doesn't share heap, GC or CPU accounting
+// with it. Embedded H2 as usual, but a database of its own and no SQL echo, which would otherwise be what's measured.
+final class AppServer implements AutoCloseable {
+
+    private final Process process;
+    private final URI baseUri;
+    private final Path log;
+
+    private AppServer(Process process, URI baseUri, Path log) {
+        this.process = process;
+        this.baseUri = baseUri;
+        this.log = log;
+    }
+
+    static AppServer start(Path jar, List<String> jvmArgs, List<String> appArgs, Path log, Duration timeout)
+            throws IOException, InterruptedException {
+        AppServer server = launch(jar, jvmArgs, appArgs, log);
+        try {
+            server.await("/actuator/health", Duration.ofMillis(250), timeout);
+        } catch (RuntimeException | IOException | InterruptedException e) {
+            server.close();
+            throw e;
+        }
+        return server;
+    }
+
+    // Returns as soon as the process is started, before the application is listening
+    static AppServer launch(Path jar, List<String> jvmArgs, List<String> appArgs, Path log) throws IOException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-jar");
+        command.add(jar.toString());
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        command.add("--spring.r2dbc.url=r2dbc:h2:mem:///loadtest;DB_CLOSE_DELAY=-1");
+        command.add("--spring.jpa.show-sql=false");
+        command.add("--spring.h2.console.enabled=false");
+        command.add("--logging.level.root=WARN");
+        // Last, so they can override any of the above
+        command.addAll(appArgs);
+
+        Files.createDirectories(log.getParent());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        // Don't leave the server behind if the run is interrupted
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroyForcibly));
+
+        return new AppServer(process, URI.create("http://localhost:" + port), log);
+    }
+
+    URI baseUri() {
+        return baseUri;
+    }
+
+    long pid() {
+        return process.pid();
+    }
+
+    // Polls the path until it answers below 400
+    void await(String path, Duration pollInterval, Duration timeout) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(Duration.ofSeconds(2))
+                .GET()
+                .build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try (HttpClient probe = HttpClient.newHttpClient()) {
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    if (probe.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(pollInterval);
+            }
+        }
+        throw new IllegalStateException("No answer from " + path + " after " + timeout.toSeconds() + "s, see " + log);
+    }
+
+    record Footprint(long heapUsedBytes, long nonHeapUsedBytes, long liveThreads, long rssBytes, long peakRssBytes) {
+    }
+
+    // What the server holds right after the run: heap and non-heap in use and live threads from its Micrometer
+    // metrics, the resident set and its high-water mark from /proc (Linux only, -1 elsewhere). Heap in use depends
+    // on when the last GC ran, the peak resident set is the steadier number to compare.
+    Footprint footprint() throws IOException, InterruptedException {
+        try (HttpClient http = HttpClient.newHttpClient()) {
+            return new Footprint(metric(http, "jvm.memory.used?tag=area:heap"), metric(http, "jvm.memory.used?tag=area:nonheap"),
+                    metric(http, "jvm.threads.live"), procStatus("VmRSS:"), procStatus("VmHWM:"));
+        }
+    }
+
+    private long metric(HttpClient http, String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/actuator/metrics/" + query)).GET().build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(query + " answered " + response.statusCode());
+        }
+        JsonNode metric = new ObjectMapper().readTree(response.body());
+        return (long) metric.path("measurements").path(0).path("value").asDouble();
+    }
+
+    // "VmHWM:    123456 kB" in /proc/<pid>/status
+    private long procStatus(String field) throws IOException {
+        Path status = Path.of("/proc", Long.toString(process.pid()), "status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith(field)) {
+                return Long.parseLong(line.substring(field.length()).trim().split("\\s+")[0]) * 1024;
+            }
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // SIGTERM first so Spring shuts down gracefully, then kill
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.dev.pranay.user_passport_loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+// The report is JSON with one value per line and a fixed key order, so two runs diff line by line; rates and
+// milliseconds are rounded to what's meaningful at 3 significant histogram digits. The full distribution of each
+// operation goes to an .hgrm file next to it (HdrHistogram's percentile format, plottable as is).
+final class LoadReport {
+
+    private static final String TOTAL = "total";
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private LoadReport() {
+    }
+
+    static ObjectNode build(ObjectNode header, Workload.Measurement measurement, AppServer.Footprint footprint) {
+        ObjectNode report = JSON.createObjectNode();
+        report.setAll(header);
+        report.put("measuredSeconds", round(measurement.seconds(), 2));
+        report.putObject("server")
+                .put("heapUsedMb", megabytes(footprint.heapUsedBytes()))
+                .put("nonHeapUsedMb", megabytes(footprint.nonHeapUsedBytes()))
+                .put("liveThreads", footprint.liveThreads())
+                .put("rssMb", megabytes(footprint.rssBytes()))
+                .put("peakRssMb", megabytes(footprint.peakRssBytes()));
+        ObjectNode endpoints = report.putObject("endpoints");
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        for (Map.Entry<Operation, Histogram> entry : measurement.latencies().entrySet()) {
+            long errors = measurement.errors().get(entry.getKey());
+            if (entry.getValue().getTotalCount() == 0 && errors == 0) {
+                continue;
+            }
+            ObjectNode stats = stats(endpoints.putObject(entry.getKey().key), entry.getValue(), errors, measurement.seconds());
+            String firstError = measurement.firstErrors().get(entry.getKey());
+            if (firstError != null) {
+                stats.put("firstError", firstError);
+            }
+            total.add(entry.getValue());
+            totalErrors += errors;
+        }
+        stats(endpoints.putObject(TOTAL), total, totalErrors, measurement.seconds());
+        return report;
+    }
+
+    private static ObjectNode stats(ObjectNode stats, Histogram histogram, long errors, double seconds) {
+        return stats.put("requests", histogram.getTotalCount())
+                .put("errors", errors)
+                .put("throughputPerSecond", round(histogram.getTotalCount() / seconds, 1))
+                .put("meanMs", millis(histogram.getMean()))
+                .put("p50Ms", millis(histogram.getValueAtPercentile(50)))
+                .put("p90Ms", millis(histogram.getValueAtPercentile(90)))
+                .put("p99Ms", millis(histogram.getValueAtPercentile(99)))
+                .put("p999Ms", millis(histogram.getValueAtPercentile(99.9)))
+                .put("maxMs", millis(histogram.getMaxValue()));
+    }
+
+    static void write(ObjectNode report, Workload.Measurement measurement, Path json) throws IOException {
+        Files.createDirectories(json.getParent());
+        JSON.writeValue(json.toFile(), report);
+        String prefix = json.getFileName().toString().replaceFirst("\\.json$", "");
+        for (Map.Entry<Operation, Histogram> entry : measurement.latencies().entrySet()) {
+            if (entry.getValue().getTotalCount() == 0) {
+                continue;
+            }
+            Path hgrm = json.resolveSibling(prefix + "-" + entry.getKey().key + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(hgrm))) {
+                entry.getValue().outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    static JsonNode read(Path json) throws IOException {
+        return JSON.readTree(json.toFile());
+    }
+
+    static void print(JsonNode report, PrintStream out) {
+        out.printf("%n%s, %s, %s clients, %ss measured%n", report.path("app").asText(), report.path("label").asText(),
+                report.path("settings").path("concurrency").asText(), report.path("measuredSeconds").asText());
+        out.printf("%-9s %9s %7s %9s %8s %8s %8s %8s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        report.path("endpoints").properties().forEach(endpoint -> {
+            JsonNode stats = endpoint.getValue();
+            out.printf("%-9s %9d %7d %9.1f %8.2f %8.2f %8.2f %8.2f %9.2f %9.2f%n", endpoint.getKey(),
+                    stats.path("requests").asLong(), stats.path("errors").asLong(),
+                    stats.path("throughputPerSecond").asDouble(), stats.path("meanMs").asDouble(),
+                    stats.path("p50Ms").asDouble(), stats.path("p90Ms").asDouble(), stats.path("p99Ms").asDouble(),
+                    stats.path("p999Ms").asDouble(), stats.path("maxMs").asDouble());
+        });
+        report.path("endpoints").properties().forEach(endpoint -> {
+            if (endpoint.getValue().has("firstError")) {
+                out.printf("first %s error: %s%n", endpoint.getKey(), endpoint.getValue().path("firstError").asText());
+            }
+        });
+        JsonNode server = report.path("server");
+        out.printf("server after the run: heap %.1f MB, non-heap %.1f MB, %d threads, RSS %.1f MB (peak %.1f MB)%n",
+                server.path("heapUsedMb").asDouble(), server.path("nonHeapUsedMb").asDouble(),
+                server.path("liveThreads").asLong(), server.path("rssMb").asDouble(), server.path("peakRssMb").asDouble());
+    }
+
+    // Relative change per endpoint; positive throughput and negative latency deltas are improvements
+    static void printComparison(JsonNode report, JsonNode baseline, PrintStream out) {
+        out.printf("%nagainst %s (%s):%n", baseline.path("label").asText(), baseline.path("app").asText());
+        // As text: numbers read back from a file aren't the same node types as the ones just built
+        if (!report.path("settings").toString().equals(baseline.path("settings").toString())) {
+            out.println("settings differ, the deltas compare different workloads");
+        }
+        out.printf("%-9s %18s %18s %18s %18s%n", "endpoint", "req/s", "p50 ms", "p99 ms", "p99.9 ms");
+        report.path("endpoints").properties().forEach(endpoint -> {
+            JsonNode before = baseline.path("endpoints").path(endpoint.getKey());
+            if (before.isMissingNode()) {
+                return;
+            }
+            JsonNode after = endpoint.getValue();
+            out.printf("%-9s %18s %18s %18s %18s%n", endpoint.getKey(),
+                    delta(before, after, "throughputPerSecond"), delta(before, after, "p50Ms"),
+                    delta(before, after, "p99Ms"), delta(before, after, "p999Ms"));
+        });
+        // Reports written before the server footprint was recorded have none to compare
+        JsonNode before = baseline.path("server");
+        JsonNode after = report.path("server");
+        if (!before.isMissingNode()) {
+            out.printf("%-9s %18s %18s %18s %18s%n", "server", "heap MB", "non-heap MB", "threads", "peak RSS MB");
+            out.printf("%-9s %18s %18s %18s %18s%n", "", delta(before, after, "heapUsedMb"),
+                    delta(before, after, "nonHeapUsedMb"), delta(before, after, "liveThreads"),
+                    delta(before, after, "peakRssMb"));
+        }
+    }
+
+    private static String delta(JsonNode before, JsonNode after, String field) {
+        double was = before.path(field).asDouble();
+        double now = after.path(field).asDouble();
+        if (was == 0) {
+            return String.format("%.2f", now);
+        }
+        return String.format("%.2f (%+.1f%%)", now, (now - was) / was * 100);
+    }
+
+    // -1 (not available) stays -1
+    private static double megabytes(long bytes) {
+        return bytes < 0 ? -1 : round(bytes / (1024.0 * 1024.0), 1);
+    }
+
+    private static double millis(double nanos) {
+        return round(nanos / NANOS_PER_MILLI, 3);
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+}
@@ -0,0 +1,136 @@
+package com.dev.pranay.user_passport_loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+ Mixed HTTP load against the REST layer of one of the applications, started from its -exec jar in a JVM of its own,
+ with per-endpoint latency percentiles (HdrHistogram) and throughput written to a report that diffs between builds.
+ Unlike VirtualThreadLoadTest in user-passport-benchmarks, client and server don't share a JVM.
+
+ Run from the repository root:
+   mvn install -DskipTests
+   mvn -pl user-passport-loadtest exec:java -Dapp=demo -Dlabel=before
+   ... change something, mvn install -DskipTests again ...
+   mvn -pl user-passport-loadtest exec:java -Dapp=demo -Dlabel=after -Dbaseline=user-passport-loadtest/target/loadtest/demo-before.json
+
+ The blocking and the reactive stack on the same workload and dataset (-Preactive builds user-passport-reactive):
+   mvn -Preactive install -DskipTests
+   mvn -pl user-passport-loadtest exec:java -Dapp=demo -Dlabel=stack
+   mvn -pl user-passport-loadtest exec:java -Dapp=reactive -Dlabel=stack -Dbaseline=user-passport-loadtest/target/loadtest/demo-stack.json
+ Besides latency and throughput, each report carries the server's memory and threads after the run.
+
+ Knobs (system properties):
+   app              demo | bidirectional | reactive (demo)
+   users            users seeded through POST /api/user/batch before the clock starts (1000)
+   concurrency      client virtual threads (32)
+   rate             total requests/s to pace the clients at, 0 for a closed loop (0)
+   mix              operation weights, operations left out don't run (create=10,get=50,update=20,delete=5,fetchAll=15)
+   warmupSeconds, durationSeconds (10, 30)
+   serverJvmArgs    space separated, e.g. "-Xmx512m -XX:+UseZGC"
+   serverArgs       space separated application arguments, e.g. --spring.profiles.active=virtual
+   label            names the report, defaults to the short git commit
+   baseline         a previous report to print deltas against
+   jar              the application jar, defaults to <module>/target/*-exec.jar
+*/
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        TargetApp app = TargetApp.of(System.getProperty("app", "demo"));
+        int users = Integer.getInteger("users", 1_000);
+        int concurrency = Integer.getInteger("concurrency", 32);
+        double rate = Double.parseDouble(System.getProperty("rate", "0"));
+        Map<Operation, Integer> mix = Operation.parseMix(
+                System.getProperty("mix", "create=10,get=50,update=20,delete=5,fetchAll=15"));
+        Duration warmup = Duration.ofSeconds(Long.getLong("warmupSeconds", 10));
+        Duration duration = Duration.ofSeconds(Long.getLong("durationSeconds", 30));
+        List<String> serverJvmArgs = words(System.getProperty("serverJvmArgs", ""));
+        List<String> serverArgs = words(System.getProperty("serverArgs", ""));
+        Path repositoryRoot = Path.of(System.getProperty("repositoryRoot", "."));
+        Path reportDirectory = Path.of(System.getProperty("reportDirectory", "target/loadtest"));
+        String commit = gitCommit(repositoryRoot);
+        String label = System.getProperty("label", commit).replaceAll("[^A-Za-z0-9._-]", "_");
+        Path jar = System.getProperty("jar") != null ? Path.of(System.getProperty("jar")) : app.findExecJar(repositoryRoot);
+        if (concurrency < 1 || users < 0 || rate < 0) {
+            throw new IllegalArgumentException("concurrency must be positive, users and rate not negative");
+        }
+
+        ObjectMapper json = new ObjectMapper();
+        ObjectNode header = json.createObjectNode()
+                .put("app", app.key())
+                .put("label", label)
+                .put("gitCommit", commit);
+        header.putObject("settings")
+                .put("users", users)
+                .put("concurrency", concurrency)
+                .put("rate", rate)
+                .put("mix", Operation.formatMix(mix))
+                .put("warmupSeconds", warmup.toSeconds())
+                .put("durationSeconds", duration.toSeconds())
+                .put("serverJvmArgs", String.join(" ", serverJvmArgs))
+                .put("serverArgs", String.join(" ", serverArgs));
+        header.putObject("environment")
+                .put("javaVersion", System.getProperty("java.version"))
+                .put("availableProcessors", Runtime.getRuntime().availableProcessors())
+                .put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+
+        Path log = reportDirectory.resolve(app.key() + "-" + label + "-server.log");
+        System.out.printf("Starting %s, log in %s%n", jar.getFileName(), log);
+        Workload.Measurement measurement;
+        AppServer.Footprint footprint;
+        try (AppServer server = AppServer.start(jar, serverJvmArgs, serverArgs, log, Duration.ofSeconds(90));
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             // HTTP/1.1: the default of HTTP/2 would try an h2c upgrade on every new connection
+             HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clients).build()) {
+            Workload workload = new Workload(http, server.baseUri(), app, mix);
+            List<Workload.Owned> seeded = workload.seed(users);
+            System.out.printf("Seeded %d users into pid %d, %ds warmup, %ds measured%n",
+                    users, server.pid(), warmup.toSeconds(), duration.toSeconds());
+            measurement = workload.run(clients, seeded, concurrency, rate, warmup, duration);
+            footprint = server.footprint();
+        }
+
+        ObjectNode report = LoadReport.build(header, measurement, footprint);
+        Path reportFile = reportDirectory.resolve(app.key() + "-" + label + ".json");
+        LoadReport.write(report, measurement, reportFile);
+        LoadReport.print(report, System.out);
+        String baseline = System.getProperty("baseline");
+        if (baseline != null) {
+            LoadReport.printComparison(report, LoadReport.read(Path.of(baseline)), System.out);
+        }
+        System.out.printf("%nReport: %s%n", reportFile.toAbsolutePath().normalize());
+    }
+
+    private static List<String> words(String value) {
+        return Arrays.stream(value.trim().split("\\s+")).filter(word -> !word.isEmpty()).toList();
+    }
+
+    // Short commit of the tree being measured, with a marker when it has uncommitted changes
+    static String gitCommit(Path repositoryRoot) {
+        try {
+            Process rev = new ProcessBuilder("git", "describe", "--always", "--dirty")
+                    .directory(repositoryRoot.toFile())
+                    .redirectErrorStream(true)
+                    .start();
+            String output = new String(rev.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            return rev.waitFor(10, TimeUnit.SECONDS) && rev.exitValue() == 0 ? output : "local";
+        } catch (IOException e) {
+            return "local";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "local";
+        }
+    }
+}
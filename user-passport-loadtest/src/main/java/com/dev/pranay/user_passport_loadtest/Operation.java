@@ -0,0 +1,62 @@
+package com.dev.pranay.user_passport_loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// The requests a client mixes; the key is what -Dmix and the report use
+enum Operation {
+
+    CREATE("create"),
+    GET("get"),
+    UPDATE("update"),
+    DELETE("delete"),
+    FETCH_ALL("fetchAll");
+
+    final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    boolean needsExistingUser() {
+        return this == GET || this == UPDATE || this == DELETE;
+    }
+
+    static Operation of(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + key + ", expected one of "
+                + Arrays.stream(values()).map(operation -> operation.key).collect(Collectors.joining(", ")));
+    }
+
+    // "create=10,get=50,update=20" -> weights; operations left out don't run
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] keyAndWeight = entry.trim().split("=");
+            if (keyAndWeight.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in mix, got " + entry);
+            }
+            int weight = Integer.parseInt(keyAndWeight[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight for " + keyAndWeight[0]);
+            }
+            weights.put(of(keyAndWeight[0].trim()), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix " + mix + " runs nothing");
+        }
+        return weights;
+    }
+
+    static String formatMix(Map<Operation, Integer> weights) {
+        return weights.entrySet().stream()
+                .map(entry -> entry.getKey().key + "=" + entry.getValue())
+                .collect(Collectors.joining(","));
+    }
+}
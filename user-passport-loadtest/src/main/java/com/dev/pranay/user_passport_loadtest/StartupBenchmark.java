@@ -0,0 +1,182 @@
+package com.dev.pranay.user_passport_loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ Time to first request of both applications: from starting the JVM until the full listing (a real query through
+ JPA) answers, polled every 5ms. Each mode starts a fresh JVM per run, modes take turns so drift hits all of them.
+
+ Run from the repository root:
+   mvn -Pfast-startup install -DskipTests
+   mvn -pl user-passport-loadtest exec:java@startup [-Dapp=demo] [-Druns=10]
+
+ Modes:
+   default        java -jar on the -exec jar, schema generated by Hibernate as in development
+   validate       the same jar with the fast-startup profile, versioned schema scripts and ddl-auto=validate
+   fast-startup   the fast-startup profile on the AOT-processed build, with its class-data sharing archive
+
+ Knobs (system properties): app (both: demo and bidirectional, the two with a fast-startup profile), runs (5), modes (all three), serverJvmArgs, label (short git commit).
+ The report also carries application.ready.time, Spring's own measure up to the end of startup.
+*/
+public class StartupBenchmark {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    enum Mode {
+        DEFAULT, VALIDATE, FAST_STARTUP;
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+
+        static Mode of(String key) {
+            return Arrays.stream(values())
+                    .filter(mode -> mode.key().equals(key.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown mode " + key + ", expected one of "
+                            + Arrays.stream(values()).map(Mode::key).toList()));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String appName = System.getProperty("app", "both");
+        List<TargetApp> apps = appName.equals("both")
+                ? List.of(TargetApp.DEMO, TargetApp.BIDIRECTIONAL)
+                : List.of(TargetApp.of(appName));
+        int runs = Integer.getInteger("runs", 5);
+        List<Mode> modes = Arrays.stream(System.getProperty("modes", "default,validate,fast-startup").split(","))
+                .map(Mode::of)
+                .toList();
+        List<String> serverJvmArgs = Arrays.stream(System.getProperty("serverJvmArgs", "").trim().split("\\s+"))
+                .filter(word -> !word.isEmpty())
+                .toList();
+        Path repositoryRoot = Path.of(System.getProperty("repositoryRoot", "."));
+        Path reportDirectory = Path.of(System.getProperty("reportDirectory", "target/loadtest"));
+        String commit = LoadTest.gitCommit(repositoryRoot);
+        String label = System.getProperty("label", commit).replaceAll("[^A-Za-z0-9._-]", "_");
+        if (runs < 1) {
+            throw new IllegalArgumentException("runs must be positive");
+        }
+
+        ObjectNode report = JSON.createObjectNode()
+                .put("label", label)
+                .put("gitCommit", commit);
+        report.putObject("settings")
+                .put("runs", runs)
+                .put("modes", String.join(",", modes.stream().map(Mode::key).toList()))
+                .put("serverJvmArgs", String.join(" ", serverJvmArgs));
+        report.putObject("environment")
+                .put("javaVersion", System.getProperty("java.version"))
+                .put("availableProcessors", Runtime.getRuntime().availableProcessors())
+                .put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        ObjectNode results = report.putObject("apps");
+
+        for (TargetApp app : apps) {
+            Map<Mode, List<Double>> firstRequest = new EnumMap<>(Mode.class);
+            Map<Mode, List<Double>> ready = new EnumMap<>(Mode.class);
+            for (int run = 1; run <= runs; run++) {
+                for (Mode mode : modes) {
+                    Path log = reportDirectory.resolve("startup-" + app.key() + "-" + mode.key() + "-server.log");
+                    Startup startup = measure(app, mode, repositoryRoot, serverJvmArgs, log);
+                    firstRequest.computeIfAbsent(mode, key -> new ArrayList<>()).add(startup.firstRequestMs());
+                    ready.computeIfAbsent(mode, key -> new ArrayList<>()).add(startup.readyMs());
+                    System.out.printf("%s %s run %d: first request after %.0f ms, ready after %.0f ms%n",
+                            app.key(), mode.key(), run, startup.firstRequestMs(), startup.readyMs());
+                }
+            }
+            ObjectNode appResults = results.putObject(app.key());
+            for (Mode mode : modes) {
+                ObjectNode stats = appResults.putObject(mode.key());
+                summarize(stats, "firstRequest", firstRequest.get(mode));
+                summarize(stats, "ready", ready.get(mode));
+            }
+        }
+
+        Path reportFile = reportDirectory.resolve("startup-" + label + ".json");
+        Files.createDirectories(reportDirectory);
+        JSON.writeValue(reportFile.toFile(), report);
+        print(report, System.out);
+        System.out.printf("%nReport: %s%n", reportFile.toAbsolutePath().normalize());
+    }
+
+    record Startup(double firstRequestMs, double readyMs) {
+    }
+
+    private static Startup measure(TargetApp app, Mode mode, Path repositoryRoot, List<String> serverJvmArgs, Path log)
+            throws IOException, InterruptedException {
+        List<String> jvmArgs = new ArrayList<>(serverJvmArgs);
+        List<String> appArgs = new ArrayList<>();
+        Path jar = app.findExecJar(repositoryRoot);
+        if (mode != Mode.DEFAULT) {
+            appArgs.add("--spring.profiles.active=fast-startup");
+        }
+        if (mode == Mode.FAST_STARTUP) {
+            // Absolute, the archive was recorded against the absolute classpath
+            jar = app.findFastStartupJar(repositoryRoot).toAbsolutePath().normalize();
+            jvmArgs.add("-XX:SharedArchiveFile=" + jar.resolveSibling("application.jsa"));
+            jvmArgs.add("-Dspring.aot.enabled=true");
+        }
+
+        long start = System.nanoTime();
+        try (AppServer server = AppServer.launch(jar, jvmArgs, appArgs, log)) {
+            server.await(app.fetchAllPath, Duration.ofMillis(5), Duration.ofSeconds(120));
+            double firstRequestMs = (System.nanoTime() - start) / 1e6;
+            return new Startup(firstRequestMs, readyTime(server) * 1000);
+        }
+    }
+
+    // Seconds, as Spring reports it
+    private static double readyTime(AppServer server) throws IOException, InterruptedException {
+        try (HttpClient http = HttpClient.newHttpClient()) {
+            HttpRequest request = HttpRequest.newBuilder(server.baseUri().resolve("/actuator/metrics/application.ready.time"))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("application.ready.time answered " + response.statusCode());
+            }
+            return JSON.readTree(response.body()).path("measurements").path(0).path("value").asDouble();
+        }
+    }
+
+    private static void summarize(ObjectNode stats, String name, List<Double> millis) {
+        List<Double> sorted = millis.stream().sorted().toList();
+        stats.put(name + "MedianMs", Math.round(sorted.get(sorted.size() / 2)))
+                .put(name + "MinMs", Math.round(sorted.getFirst()))
+                .put(name + "MaxMs", Math.round(sorted.getLast()));
+    }
+
+    private static void print(JsonNode report, PrintStream out) {
+        out.printf("%n%s, %s runs per mode, median (min-max) ms%n", report.path("label").asText(),
+                report.path("settings").path("runs").asText());
+        out.printf("%-14s %-13s %22s %22s%n", "app", "mode", "first request", "ready");
+        report.path("apps").properties().forEach(app -> app.getValue().properties().forEach(mode -> {
+            JsonNode stats = mode.getValue();
+            out.printf("%-14s %-13s %22s %22s%n", app.getKey(), mode.getKey(), range(stats, "firstRequest"),
+                    range(stats, "ready"));
+        }));
+    }
+
+    private static String range(JsonNode stats, String name) {
+        return String.format("%d (%d-%d)", stats.path(name + "MedianMs").asLong(), stats.path(name + "MinMs").asLong(),
+                stats.path(name + "MaxMs").asLong());
+    }
+}
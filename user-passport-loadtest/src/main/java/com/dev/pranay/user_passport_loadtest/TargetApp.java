@@ -0,0 +1,73 @@
+package com.dev.pranay.user_passport_loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// The applications differ in where the full listing lives and in whether their DTOs carry the id. The reactive
+// one serves the demo's API on WebFlux/R2DBC, so the two compare on the same workload and dataset.
+enum TargetApp {
+
+    DEMO("user-passport-demo", "/api/user/fetchAll"),
+    BIDIRECTIONAL("user-passport-bidirectional", "/api/user/all"),
+    REACTIVE("user-passport-reactive", "/api/user/fetchAll");
+
+    final String module;
+    final String fetchAllPath;
+
+    TargetApp(String module, String fetchAllPath) {
+        this.module = module;
+        this.fetchAllPath = fetchAllPath;
+    }
+
+    static TargetApp of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown app " + name + ", expected one of "
+                    + Arrays.toString(values()).toLowerCase(Locale.ROOT));
+        }
+    }
+
+    String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    // The repackaged jar spring-boot-maven-plugin leaves next to the plain one
+    Path findExecJar(Path repositoryRoot) throws IOException {
+        Path target = repositoryRoot.resolve(module).resolve("target");
+        if (Files.isDirectory(target)) {
+            try (Stream<Path> files = Files.list(target)) {
+                return files.filter(file -> file.getFileName().toString().endsWith("-exec.jar"))
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalStateException(noJar(target)));
+            }
+        }
+        throw new IllegalStateException(noJar(target));
+    }
+
+    // What mvn -Pfast-startup package leaves in target/fast-startup: the extracted -exec jar and its CDS archive
+    Path findFastStartupJar(Path repositoryRoot) throws IOException {
+        Path fastStartup = findExecJar(repositoryRoot).resolveSibling("fast-startup");
+        if (Files.isDirectory(fastStartup) && Files.exists(fastStartup.resolve("application.jsa"))) {
+            try (Stream<Path> files = Files.list(fastStartup)) {
+                Optional<Path> jar = files.filter(file -> file.getFileName().toString().endsWith("-exec.jar")).findFirst();
+                if (jar.isPresent()) {
+                    return jar.get();
+                }
+            }
+        }
+        throw new IllegalStateException("No AOT/CDS build in " + fastStartup.toAbsolutePath().normalize()
+                + ", run mvn -Pfast-startup install -DskipTests from the repository root first");
+    }
+
+    private static String noJar(Path target) {
+        return "No -exec.jar in " + target.toAbsolutePath().normalize()
+                + ", run mvn install -DskipTests from the repository root first, with -Preactive for user-passport-reactive"
+                + " (or pass -Djar=...)";
+    }
+}
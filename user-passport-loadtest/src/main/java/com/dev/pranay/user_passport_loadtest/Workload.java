@@ -0,0 +1,289 @@
+package com.dev.pranay.user_passport_loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Drives the mix from one virtual thread per client. Each client owns a slice of the seeded users (and whatever it
+// creates, when the app returns the id), so gets, updates and deletes never race another client for the same row:
+// what's measured is the request path, not optimistic-lock retries or 404s. A client whose slice is empty creates
+// instead of getting, updating or deleting.
+final class Workload {
+
+    private static final int SEED_BATCH = 500;
+    private static final String[] NATIONALITIES = {"IN", "US", "FR", "BR", "JP"};
+
+    private final HttpClient http;
+    private final URI baseUri;
+    private final TargetApp app;
+    private final ObjectMapper json = new ObjectMapper();
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    private final Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicReference<String>> firstErrors = new EnumMap<>(Operation.class);
+    // Unique names, emails and passport numbers for created users
+    private final AtomicLong sequence = new AtomicLong();
+
+    Workload(HttpClient http, URI baseUri, TargetApp app, Map<Operation, Integer> mix) {
+        this.http = http;
+        this.baseUri = baseUri;
+        this.app = app;
+        this.operations = mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        for (Operation operation : Operation.values()) {
+            // Auto-resizing, 3 significant digits, nanoseconds
+            latencies.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+            firstErrors.put(operation, new AtomicReference<>());
+        }
+    }
+
+    record Owned(long id, String passportNumber) {
+    }
+
+    record Measurement(Map<Operation, Histogram> latencies, Map<Operation, Long> errors,
+                       Map<Operation, String> firstErrors, double seconds) {
+    }
+
+    // Inserts the users through POST /api/user/batch before the clock starts
+    List<Owned> seed(int users) throws IOException, InterruptedException {
+        List<Owned> seeded = new ArrayList<>(users);
+        for (int from = 0; from < users; from += SEED_BATCH) {
+            ArrayNode batch = json.createArrayNode();
+            int to = Math.min(users, from + SEED_BATCH);
+            for (int i = from; i < to; i++) {
+                batch.add(user("seed-" + i, "SEED-" + i, NATIONALITIES[i % NATIONALITIES.length]));
+            }
+            HttpResponse<String> response = http.send(post("/api/user/batch", batch), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": "
+                        + abbreviate(response.body()));
+            }
+            JsonNode created = json.readTree(response.body());
+            for (int i = 0; i < created.size(); i++) {
+                JsonNode id = created.get(i).get("id");
+                // The bidirectional DTOs carry no id; its fresh database numbers users in insertion order,
+                // which the probe below checks
+                seeded.add(new Owned(id != null && !id.isNull() ? id.asLong() : seeded.size() + 1L, "SEED-" + (from + i)));
+            }
+        }
+        if (!seeded.isEmpty()) {
+            Owned last = seeded.getLast();
+            HttpResponse<String> probe = http.send(get("/api/user/" + last.id()), HttpResponse.BodyHandlers.ofString());
+            String expectedEmail = "seed-" + (users - 1) + "@loadtest.example";
+            if (probe.statusCode() >= 400 || !expectedEmail.equals(json.readTree(probe.body()).path("email").asText())) {
+                throw new IllegalStateException("User " + last.id() + " is not the last seeded user: " + abbreviate(probe.body()));
+            }
+        }
+        return seeded;
+    }
+
+    // Warmup, then the measured window, with the same clients running through both. With a rate the clients are
+    // paced and latency runs from when a request should have been sent, so a stalled server shows up as latency
+    // instead of as fewer requests (coordinated omission); without one every client sends as soon as it's answered.
+    Measurement run(ExecutorService clients, List<Owned> seeded, int concurrency, double rate,
+                    Duration warmup, Duration duration) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        long interval = rate > 0 ? (long) (concurrency * 1_000_000_000L / rate) : 0;
+
+        List<Future<?>> workers = new ArrayList<>(concurrency);
+        for (int client = 0; client < concurrency; client++) {
+            List<Owned> owned = new ArrayList<>();
+            for (int i = client; i < seeded.size(); i += concurrency) {
+                owned.add(seeded.get(i));
+            }
+            // Spread paced clients over the interval instead of sending in bursts
+            long firstSend = start + interval * client / concurrency;
+            workers.add(clients.submit(() -> drive(owned, firstSend, end, interval)));
+        }
+
+        Thread.sleep(Duration.ofNanos(Math.max(0, measureFrom - System.nanoTime())));
+        for (Operation operation : Operation.values()) {
+            latencies.get(operation).reset();
+            errors.get(operation).reset();
+            firstErrors.get(operation).set(null);
+        }
+        long measuring = System.nanoTime();
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Client failed", e.getCause());
+            }
+        }
+        double seconds = (System.nanoTime() - measuring) / 1e9;
+
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        Map<Operation, Long> errorCounts = new EnumMap<>(Operation.class);
+        Map<Operation, String> errorSamples = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, latencies.get(operation).getIntervalHistogram());
+            errorCounts.put(operation, errors.get(operation).sum());
+            if (firstErrors.get(operation).get() != null) {
+                errorSamples.put(operation, firstErrors.get(operation).get());
+            }
+        }
+        return new Measurement(histograms, errorCounts, errorSamples, seconds);
+    }
+
+    private void drive(List<Owned> owned, long firstSend, long end, long interval) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intended = firstSend;
+        while (true) {
+            long now = System.nanoTime();
+            if (interval > 0) {
+                if (intended >= end) {
+                    return;
+                }
+                if (intended > now) {
+                    LockSupport.parkNanos(intended - now);
+                }
+            } else if (now >= end) {
+                return;
+            }
+
+            Operation operation = pick(random);
+            if (operation.needsExistingUser() && owned.isEmpty()) {
+                operation = Operation.CREATE;
+            }
+            long sent = interval > 0 ? intended : System.nanoTime();
+            String error = execute(operation, owned, random);
+            long latency = System.nanoTime() - sent;
+            if (error == null) {
+                latencies.get(operation).recordValue(latency);
+            } else {
+                errors.get(operation).increment();
+                firstErrors.get(operation).compareAndSet(null, error);
+            }
+            intended += interval;
+        }
+    }
+
+    private Operation pick(ThreadLocalRandom random) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("Weight " + roll + " out of range");
+    }
+
+    // Null when the request succeeded, otherwise what went wrong
+    private String execute(Operation operation, List<Owned> owned, ThreadLocalRandom random) {
+        try {
+            return switch (operation) {
+                case CREATE -> {
+                    long n = sequence.incrementAndGet();
+                    String passportNumber = "LT-" + n;
+                    HttpResponse<String> response = http.send(
+                            post("/api/user", user("lt-" + n, passportNumber, NATIONALITIES[random.nextInt(NATIONALITIES.length)])),
+                            HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() == 201) {
+                        JsonNode id = json.readTree(response.body()).get("id");
+                        if (id != null && !id.isNull()) {
+                            owned.add(new Owned(id.asLong(), passportNumber));
+                        }
+                    }
+                    yield failure(response.statusCode(), response.body());
+                }
+                case GET -> {
+                    Owned user = owned.get(random.nextInt(owned.size()));
+                    HttpResponse<String> response = http.send(get("/api/user/" + user.id()), HttpResponse.BodyHandlers.ofString());
+                    yield failure(response.statusCode(), response.body());
+                }
+                case UPDATE -> {
+                    Owned user = owned.get(random.nextInt(owned.size()));
+                    ObjectNode body = user("upd-" + user.id(), user.passportNumber(), NATIONALITIES[random.nextInt(NATIONALITIES.length)]);
+                    HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/user/" + user.id()))
+                            .header("Content-Type", "application/json")
+                            .PUT(HttpRequest.BodyPublishers.ofString(body.toString()))
+                            .build();
+                    HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                    yield failure(response.statusCode(), response.body());
+                }
+                case DELETE -> {
+                    // Swap-remove, the slice is unordered
+                    int index = random.nextInt(owned.size());
+                    Owned user = owned.get(index);
+                    owned.set(index, owned.getLast());
+                    owned.removeLast();
+                    HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/user/" + user.id())).DELETE().build();
+                    HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                    yield failure(response.statusCode(), response.body());
+                }
+                case FETCH_ALL -> {
+                    // Read to the end, only the size matters
+                    HttpResponse<Void> response = http.send(get(app.fetchAllPath), HttpResponse.BodyHandlers.discarding());
+                    yield failure(response.statusCode(), "");
+                }
+            };
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        } catch (IOException e) {
+            return e.toString();
+        }
+    }
+
+    // The bidirectional app answers a single-user GET with 302 FOUND, so anything below 400 counts as served
+    private static String failure(int status, String body) {
+        return status < 400 ? null : "HTTP " + status + " " + abbreviate(body);
+    }
+
+    private ObjectNode user(String name, String passportNumber, String nationality) {
+        ObjectNode user = json.createObjectNode()
+                .put("name", name)
+                .put("email", name + "@loadtest.example");
+        user.putObject("passportDto")
+                .put("passportNumber", passportNumber)
+                .put("nationality", nationality);
+        return user;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).GET().build();
+    }
+
+    private HttpRequest post(String path, JsonNode body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= 200 ? text : text.substring(0, 200) + "...";
+    }
+}
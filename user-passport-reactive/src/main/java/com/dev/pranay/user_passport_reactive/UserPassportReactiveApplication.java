@@ -0,0 +1,13 @@
+package com.dev.pranay.user_passport_reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class UserPassportReactiveApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(UserPassportReactiveApplication.class, args);
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.dev.pranay.user_passport_reactive.controller;
+
+import com.dev.pranay.user_passport_reactive.dtos.UserDto;
+import com.dev.pranay.user_passport_reactive.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// The /api/user endpoints of user-passport-demo on WebFlux. The collection endpoints return the Flux itself:
+// as application/json it's written as one JSON array element by element, as NDJSON a line per user, and either
+// way Reactor Netty only requests more rows from R2DBC as the client reads the response (backpressure), so a slow
+// client holds neither a thread nor the whole result.
+@RestController
+@RequestMapping("/api/user")
+@RequiredArgsConstructor
+public class UserController {
+
+    private final UserService userService;
+
+    @PostMapping
+    public Mono<ResponseEntity<UserDto>> createUser(@RequestBody UserDto userDto) {
+        return userService.createUser(userDto)
+                .map(user -> new ResponseEntity<>(user, HttpStatus.CREATED));
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<List<UserDto>>> createUsers(@RequestBody List<UserDto> userDtos) {
+        return userService.createUsers(userDtos)
+                .map(users -> new ResponseEntity<>(users, HttpStatus.CREATED));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<UserDto>> getUserById(@PathVariable Long id) {
+        return userService.getUserById(id)
+                .map(user -> new ResponseEntity<>(user, HttpStatus.OK));
+    }
+
+    @GetMapping("/all")
+    public Flux<UserDto> getAll() {
+        return userService.getAllUsers();
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<UserDto>> updateUser(@PathVariable Long id, @RequestBody UserDto userDto) {
+        return userService.createOrUpdateUser(id, userDto)
+                .map(user -> new ResponseEntity<>(user, HttpStatus.OK));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable Long id) {
+        return userService.deleteUser(id)
+                .then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+
+    @GetMapping("/fetch/{id}")
+    public Mono<ResponseEntity<UserDto>> fetchUserWithPassport(@PathVariable Long id) {
+        return userService.getUserById(id)
+                .map(user -> new ResponseEntity<>(user, HttpStatus.FOUND));
+    }
+
+    @GetMapping("/fetchAll")
+    public Flux<UserDto> findAllUsersWithPassports() {
+        return userService.findAllUsersWithPassports();
+    }
+
+    @GetMapping(value = "/all/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserDto> streamAll() {
+        return userService.getAllUsers();
+    }
+
+    @GetMapping(value = "/fetchAll/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserDto> streamAllUsersWithPassports() {
+        return userService.findAllUsersWithPassports();
+    }
+}
@@ -0,0 +1,17 @@
+package com.dev.pranay.user_passport_reactive.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Same JSON as user-passport-demo's UserDto, so clients (and the load test) can't tell the two apart
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserDto {
+
+    private Long id;
+    private String name;
+    private String email;
+    private PassportDto passportDto;
+}
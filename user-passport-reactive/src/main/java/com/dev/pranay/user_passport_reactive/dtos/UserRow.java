@@ -0,0 +1,9 @@
+package com.dev.pranay.user_passport_reactive.dtos;
+
+// One row of users LEFT JOIN passport, what the read queries in UserRepository return instead of entities
+public record UserRow(Long id, String name, String email, Long passportId, String passportNumber, String nationality) {
+
+    public UserDto toDto() {
+        return new UserDto(id, name, email, passportId == null ? null : new PassportDto(passportId, passportNumber, nationality));
+    }
+}
@@ -0,0 +1,29 @@
+package com.dev.pranay.user_passport_reactive.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Table("passport")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Passport {
+
+    @Id
+    private Long id;
+    private String passportNumber;
+    private String nationality;
+
+    private LocalDateTime issueDate;
+    private LocalDateTime expiryDate;
+
+    // See User.version
+    @Version
+    private Long version;
+}
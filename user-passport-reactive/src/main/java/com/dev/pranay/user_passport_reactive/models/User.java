@@ -0,0 +1,33 @@
+package com.dev.pranay.user_passport_reactive.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+// Spring Data R2DBC maps no relationships, so the passport is the foreign key itself (users.passport_id, as in
+// user-passport-demo) and the service joins or loads it explicitly.
+@Table("users")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class User {
+
+    @Id
+    private Long id;
+    private String name;
+    private String email;
+    private Long passportId;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime modifiedAt;
+
+    // Optimistic locking as in the demo: the UPDATE carries "AND version = ?" and a stale copy fails. A null version
+    // is also what marks the entity as new, so save() inserts it.
+    @Version
+    private Long version;
+}
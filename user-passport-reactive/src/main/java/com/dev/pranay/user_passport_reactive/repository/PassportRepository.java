@@ -0,0 +1,7 @@
+package com.dev.pranay.user_passport_reactive.repository;
+
+import com.dev.pranay.user_passport_reactive.models.Passport;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+public interface PassportRepository extends ReactiveCrudRepository<Passport, Long> {
+}
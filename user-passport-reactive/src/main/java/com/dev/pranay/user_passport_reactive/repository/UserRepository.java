@@ -0,0 +1,25 @@
+package com.dev.pranay.user_passport_reactive.repository;
+
+import com.dev.pranay.user_passport_reactive.dtos.UserRow;
+import com.dev.pranay.user_passport_reactive.models.User;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// The reads are one join each, mapped straight into UserRow; a Flux emits rows as the driver decodes them and
+// only as fast as the subscriber (in the end, the HTTP response) asks for them.
+public interface UserRepository extends ReactiveCrudRepository<User, Long> {
+
+    @Query("SELECT u.id, u.name, u.email, p.id AS passport_id, p.passport_number, p.nationality "
+            + "FROM users u LEFT JOIN passport p ON p.id = u.passport_id WHERE u.id = :id")
+    Mono<UserRow> findUserRowById(Long id);
+
+    @Query("SELECT u.id, u.name, u.email, p.id AS passport_id, p.passport_number, p.nationality "
+            + "FROM users u LEFT JOIN passport p ON p.id = u.passport_id ORDER BY u.id")
+    Flux<UserRow> findAllUserRows();
+
+    @Query("SELECT u.id, u.name, u.email, p.id AS passport_id, p.passport_number, p.nationality "
+            + "FROM users u JOIN passport p ON p.id = u.passport_id ORDER BY u.id")
+    Flux<UserRow> findAllUserRowsWithPassports();
+}
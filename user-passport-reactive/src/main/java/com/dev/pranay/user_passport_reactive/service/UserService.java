@@ -0,0 +1,172 @@
+package com.dev.pranay.user_passport_reactive.service;
+
+import com.dev.pranay.user_passport_reactive.dtos.PassportDto;
+import com.dev.pranay.user_passport_reactive.dtos.UserDto;
+import com.dev.pranay.user_passport_reactive.dtos.UserRow;
+import com.dev.pranay.user_passport_reactive.models.Passport;
+import com.dev.pranay.user_passport_reactive.models.User;
+import com.dev.pranay.user_passport_reactive.repository.PassportRepository;
+import com.dev.pranay.user_passport_reactive.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// The operations of user-passport-demo's UserService, none of which blocks a thread: every method only assembles
+// a pipeline, the statements run when the controller's response subscribes to it.
+@Service
+@RequiredArgsConstructor
+public class UserService {
+
+    private final UserRepository userRepository;
+    private final PassportRepository passportRepository;
+    private final TransactionalOperator transactionalOperator;
+
+    @Value("${user.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    @Value("${user.update.max-attempts:5}")
+    private int updateMaxAttempts;
+
+    @Value("${user.update.backoff:10ms}")
+    private Duration updateBackoff;
+
+    public Mono<UserDto> createUser(UserDto userDto) {
+        Mono<Boolean> exists = userDto.getId() == null ? Mono.just(false) : userRepository.existsById(userDto.getId());
+        return exists
+                .flatMap(found -> found
+                        ? Mono.<UserDto>error(new RuntimeException("User with ID already exists: " + userDto.getId()))
+                        : insert(userDto))
+                .as(transactionalOperator::transactional);
+    }
+
+    // Each chunk commits on its own, so a failure part way through keeps the chunks before it. Inside a chunk the
+    // inserts go one after the other on the transaction's connection: R2DBC has no equivalent of Hibernate's JDBC
+    // batching for inserts whose generated keys are needed back.
+    public Mono<List<UserDto>> createUsers(List<UserDto> userDtos) {
+        return Mono.defer(() -> {
+            List<UserDto> created = new ArrayList<>(userDtos.size());
+            return Flux.fromIterable(userDtos)
+                    .buffer(batchChunkSize)
+                    .concatMap(chunk -> Flux.fromIterable(chunk)
+                            .concatMap(this::insert)
+                            .collectList()
+                            .as(transactionalOperator::transactional))
+                    .doOnNext(created::addAll)
+                    .then(Mono.fromSupplier(() -> created))
+                    .onErrorMap(e -> new RuntimeException(
+                            "Batch create failed after " + created.size() + " users were committed", e));
+        });
+    }
+
+    // The passport first, users.passport_id references it. Ids always come from the identity columns.
+    private Mono<UserDto> insert(UserDto userDto) {
+        LocalDateTime now = LocalDateTime.now();
+        Mono<Optional<Passport>> passport = userDto.getPassportDto() == null
+                ? Mono.just(Optional.empty())
+                : passportRepository.save(newPassport(userDto.getPassportDto(), now)).map(Optional::of);
+        return passport.flatMap(saved -> userRepository
+                .save(new User(null, userDto.getName(), userDto.getEmail(), saved.map(Passport::getId).orElse(null),
+                        now, now, null))
+                .map(user -> toDto(user, saved.orElse(null))));
+    }
+
+    // Each attempt is a transaction of its own that reads the rows again. A stale version fails the UPDATE with an
+    // OptimisticLockingFailureException, and the attempt is resubscribed after a randomised exponential backoff:
+    // the demo's withConflictRetry, but with no thread sleeping through the wait.
+    public Mono<UserDto> createOrUpdateUser(Long id, UserDto userDto) {
+        return upsertUser(id, userDto)
+                .as(transactionalOperator::transactional)
+                .retryWhen(Retry.backoff(updateMaxAttempts - 1, updateBackoff)
+                        .jitter(0.5)
+                        .filter(ConcurrencyFailureException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    // An unknown id creates the user with a generated id, as the demo's PUT does
+    private Mono<UserDto> upsertUser(Long id, UserDto userDto) {
+        return userRepository.findById(id)
+                .flatMap(user -> updateUser(user, userDto))
+                .switchIfEmpty(Mono.defer(() -> insert(userDto)));
+    }
+
+    private Mono<UserDto> updateUser(User user, UserDto userDto) {
+        LocalDateTime now = LocalDateTime.now();
+        user.setName(userDto.getName());
+        user.setEmail(userDto.getEmail());
+        user.setModifiedAt(now);
+
+        PassportDto passportDto = userDto.getPassportDto();
+        Mono<Passport> passport;
+        if (passportDto == null) {
+            // No passport in the request leaves the user's passport as it is
+            passport = user.getPassportId() == null ? Mono.empty() : passportRepository.findById(user.getPassportId());
+        } else if (user.getPassportId() == null) {
+            passport = passportRepository.save(newPassport(passportDto, now));
+        } else {
+            // Update the existing passport without changing its id
+            passport = passportRepository.findById(user.getPassportId())
+                    .flatMap(existing -> {
+                        existing.setPassportNumber(passportDto.getPassportNumber());
+                        existing.setNationality(passportDto.getNationality());
+                        return passportRepository.save(existing);
+                    });
+        }
+
+        // Never empty, an empty Mono here would make upsertUser insert a second user
+        return passport.map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(saved -> {
+                    user.setPassportId(saved.map(Passport::getId).orElse(null));
+                    return userRepository.save(user).map(savedUser -> toDto(savedUser, saved.orElse(null)));
+                });
+    }
+
+    public Mono<UserDto> getUserById(Long id) {
+        return userRepository.findUserRowById(id)
+                .map(UserRow::toDto)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("User not found with given id: " + id)));
+    }
+
+    // The collections are never a list here: rows are mapped and handed on one at a time, as fast as the response
+    // is written, so memory doesn't grow with the table
+    public Flux<UserDto> getAllUsers() {
+        return userRepository.findAllUserRows().map(UserRow::toDto);
+    }
+
+    public Flux<UserDto> findAllUsersWithPassports() {
+        return userRepository.findAllUserRowsWithPassports().map(UserRow::toDto);
+    }
+
+    // The user first, it holds the foreign key to the passport
+    public Mono<Void> deleteUser(Long id) {
+        return userRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("User not found...")))
+                .flatMap(user -> userRepository.delete(user)
+                        .then(user.getPassportId() == null
+                                ? Mono.<Void>empty()
+                                : passportRepository.deleteById(user.getPassportId())))
+                .as(transactionalOperator::transactional);
+    }
+
+    private static Passport newPassport(PassportDto passportDto, LocalDateTime now) {
+        return new Passport(null, passportDto.getPassportNumber(), passportDto.getNationality(), now, now.plusYears(10), null);
+    }
+
+    private static UserDto toDto(User user, Passport passport) {
+        PassportDto passportDto = passport == null
+                ? null
+                : new PassportDto(passport.getId(), passport.getPassportNumber(), passport.getNationality());
+        return new UserDto(user.getId(), user.getName(), user.getEmail(), passportDto);
+    }
+}
@@ -0,0 +1,25 @@
+-- The users and passport tables of user-passport-demo. R2DBC has no Hibernate to generate them, so this runs on
+-- every start (spring.sql.init.schema-locations) and must be safe to re-run.
+-- Identity columns instead of the demo's sequences: Spring Data R2DBC reads the generated key back from the insert.
+
+create table if not exists passport (
+    id bigint generated by default as identity,
+    passport_number varchar(255) unique,
+    nationality varchar(255),
+    issue_date timestamp(6),
+    expiry_date timestamp(6),
+    version bigint default 0 not null,
+    primary key (id)
+);
+
+create table if not exists users (
+    id bigint generated by default as identity,
+    name varchar(255),
+    email varchar(255),
+    passport_id bigint unique,
+    created_at timestamp(6),
+    modified_at timestamp(6),
+    version bigint default 0 not null,
+    primary key (id),
+    constraint fk_users_passport foreign key (passport_id) references passport
+);
@@ -0,0 +1,89 @@
+package com.dev.pranay.user_passport_reactive.controller;
+
+import com.dev.pranay.user_passport_reactive.dtos.PassportDto;
+import com.dev.pranay.user_passport_reactive.dtos.UserDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A small chunk size so the batch below commits in several transactions
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "user.batch.chunk-size=7")
+class UserControllerTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void createFetchUpdateAndDeleteAUserWithTheirPassport() {
+        UserDto created = webTestClient.post().uri("/api/user")
+                .bodyValue(new UserDto(null, "Ada", "ada@example.com", new PassportDto(null, "RX-1", "IN")))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(UserDto.class).returnResult().getResponseBody();
+        assertNotNull(created.getId());
+        assertNotNull(created.getPassportDto().getId());
+
+        webTestClient.get().uri("/api/user/fetch/{id}", created.getId())
+                .exchange()
+                .expectStatus().isFound()
+                .expectBody(UserDto.class).isEqualTo(created);
+
+        // The passport is updated in place, not replaced
+        UserDto updated = webTestClient.put().uri("/api/user/{id}", created.getId())
+                .bodyValue(new UserDto(null, "Ada L", "ada.l@example.com", new PassportDto(null, "RX-2", "FR")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserDto.class).returnResult().getResponseBody();
+        assertEquals(new UserDto(created.getId(), "Ada L", "ada.l@example.com",
+                new PassportDto(created.getPassportDto().getId(), "RX-2", "FR")), updated);
+        webTestClient.get().uri("/api/user/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserDto.class).isEqualTo(updated);
+
+        webTestClient.delete().uri("/api/user/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+        webTestClient.get().uri("/api/user/{id}", created.getId())
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    void batchCreatedUsersStreamBackInIdOrder() {
+        List<UserDto> batch = IntStream.range(0, 30)
+                .mapToObj(i -> new UserDto(null, "Batch " + i, "batch" + i + "@example.com",
+                        i % 3 == 0 ? null : new PassportDto(null, "RXB-" + i, "IN")))
+                .toList();
+        List<UserDto> created = webTestClient.post().uri("/api/user/batch")
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBodyList(UserDto.class).returnResult().getResponseBody();
+        assertEquals(30, created.size());
+
+        List<UserDto> all = webTestClient.get().uri("/api/user/all")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(UserDto.class).returnResult().getResponseBody();
+        assertTrue(all.containsAll(created));
+
+        // Only the users with a passport, one NDJSON line each
+        List<UserDto> streamed = webTestClient.get().uri("/api/user/fetchAll/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(UserDto.class).getResponseBody()
+                .filter(user -> user.getName().startsWith("Batch "))
+                .collectList()
+                .block();
+        assertEquals(created.stream().filter(user -> user.getPassportDto() != null).toList(), streamed);
+    }
+}